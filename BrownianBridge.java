@@ -0,0 +1,94 @@
+package MonteCarlo;
+
+/**
+ * This class builds a Brownian path on the unit time grid 1, 2, ..., n by bisection: the first
+ * normal fixes the terminal value, the next ones fill the midpoints of the remaining intervals.
+ * Most of the variance of the path is then carried by the first few normals, which is where a
+ * low-discrepancy sequence is most uniform.
+ * @author xiaog
+ *
+ */
+
+public class BrownianBridge {
+
+	private int _length;
+	private int[] _bridgeIndex;
+	private int[] _leftIndex;
+	private int[] _rightIndex;
+	private double[] _leftWeight;
+	private double[] _rightWeight;
+	private double[] _stdDev;
+
+	public BrownianBridge(int length) {
+		this._length = length;
+		this._bridgeIndex = new int[length];
+		this._leftIndex = new int[length];
+		this._rightIndex = new int[length];
+		this._leftWeight = new double[length];
+		this._rightWeight = new double[length];
+		this._stdDev = new double[length];
+
+		// map[i] is the normal that fixes the point i, zero for the points still free
+		int[] map = new int[length];
+		map[length - 1] = 1;
+		this._bridgeIndex[0] = length - 1;
+		this._stdDev[0] = Math.sqrt(length);
+
+		for (int j = 0, i_1 = 1; i_1 < length; ++ i_1) {
+			// next free interval [j, k]
+			while (map[j] != 0) {
+				++ j;
+			}
+			int k = j;
+			while (map[k] == 0) {
+				++ k;
+			}
+			// point l is the midpoint, conditioned on the points j - 1 and k
+			int l = j + ((k - 1 - j) >> 1);
+			map[l] = i_1;
+			this._bridgeIndex[i_1] = l;
+			this._leftIndex[i_1] = j;
+			this._rightIndex[i_1] = k;
+			// time of point i is i + 1, point -1 is the start at time 0
+			double tLeft = j;
+			double tMiddle = l + 1;
+			double tRight = k + 1;
+			this._leftWeight[i_1] = (tRight - tMiddle) / (tRight - tLeft);
+			this._rightWeight[i_1] = (tMiddle - tLeft) / (tRight - tLeft);
+			this._stdDev[i_1] = Math.sqrt((tMiddle - tLeft) * (tRight - tMiddle) / (tRight - tLeft));
+			j = k + 1;
+			if (j >= length) {
+				j = 0;
+			}
+		}
+	}
+
+	public int getLength() {
+		return this._length;
+	}
+
+	/**
+	 * Turn normals ordered by importance into the increments of the path
+	 * @param normals independent standard normals, normals[0] fixes the terminal value
+	 * @param increments output, the standard normal increment of every time step
+	 */
+	public void transform(double[] normals, double[] increments) {
+		increments[this._length - 1] = this._stdDev[0] * normals[0];
+		for (int i_1 = 1; i_1 < this._length; ++ i_1) {
+			int j = this._leftIndex[i_1];
+			int k = this._rightIndex[i_1];
+			int l = this._bridgeIndex[i_1];
+			if (j != 0) {
+				increments[l] = this._leftWeight[i_1] * increments[j - 1]
+						+ this._rightWeight[i_1] * increments[k] + this._stdDev[i_1] * normals[i_1];
+			} else {
+				increments[l] = this._rightWeight[i_1] * increments[k] + this._stdDev[i_1] * normals[i_1];
+			}
+		}
+		// the time steps have unit length, so the differences are standard normal
+		for (int i_1 = this._length - 1; i_1 > 0; -- i_1) {
+			increments[i_1] -= increments[i_1 - 1];
+		}
+	}
+
+}
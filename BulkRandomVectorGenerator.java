@@ -0,0 +1,20 @@
+package MonteCarlo;
+
+/**
+ * A generator that can write its normals straight into an array of the caller, e.g. a whole
+ * block of paths at once, instead of handing out one vector per call.
+ * @author xiaog
+ *
+ */
+
+public interface BulkRandomVectorGenerator extends RandomVectorGenerator {
+
+	/**
+	 * Fill a range of the array with independent standard normals
+	 * @param out the array to be overwritten
+	 * @param off first index to fill
+	 * @param len number of normals
+	 */
+	public void fill(double[] out, int off, int len);
+
+}
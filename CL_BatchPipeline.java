@@ -0,0 +1,168 @@
+package MonteCarlo;
+
+import static org.jocl.CL.CL_FALSE;
+import static org.jocl.CL.CL_MEM_READ_WRITE;
+import static org.jocl.CL.clEnqueueNDRangeKernel;
+import static org.jocl.CL.clEnqueueReadBuffer;
+import static org.jocl.CL.clFlush;
+import static org.jocl.CL.clReleaseEvent;
+import static org.jocl.CL.clSetKernelArg;
+import static org.jocl.CL.clWaitForEvents;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_event;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+
+/**
+ * This class keeps several batches of terminal prices in flight on the device. Every slot owns
+ * a device buffer and a direct host buffer; a batch is generated by one kernel and copied back
+ * with a non-blocking read that waits on the kernel's event. While the host consumes batch N,
+ * the device is already working on the next batches.
+ * @author xiaog
+ *
+ */
+
+public class CL_BatchPipeline {
+
+	// Terminal prices from the Philox stream, one counter gives two paths
+	private static final String TERMINAL_SOURCE = CL_Generation.PHILOX_SOURCE
+			+ "__kernel void terminalPrices(const ulong seed, const ulong offset, const float S0, const float r,\n"
+			+ "        const float v, const float T, __global float* out)\n"
+			+ "{\n"
+			+ "    int i = get_global_id(0);\n"
+			+ "    float2 z = philox_normal2(seed, offset + i);\n"
+			+ "    float drift = (r - v * v / 2) * T;\n"
+			+ "    out[2 * i] = S0 * exp(drift + v * sqrt(T) * z.x);\n"
+			+ "    out[2 * i + 1] = S0 * exp(drift + v * sqrt(T) * z.y);\n"
+			+ "}\n";
+
+	private CL_Runtime _runtime;
+	private float _startPrice;
+	private float _interest;
+	private float _volatility;
+	private float _duration;
+	private long _seed;
+	private long _offset; // Philox counter of the next submitted batch
+	private int _batchSize; // prices per batch, always even
+
+	// One entry per in-flight batch
+	private cl_mem[] _deviceBuffers;
+	private FloatBuffer[] _hostBuffers;
+	private cl_event[] _readEvents;
+	private int _head = 0; // slot of the oldest batch not yet handed to the host
+	private int _consumed = -1; // slot handed to the host by the last call of next()
+
+	/**
+	 * Constructors
+	 * @param option the underlying
+	 * @param duration time to maturity
+	 * @param seed key of the Philox stream
+	 * @param batchSize number of prices per batch, rounded up to an even number
+	 * @param inFlight number of batches queued on the device at the same time
+	 * @param runtime the OpenCL device
+	 */
+	public CL_BatchPipeline( Option<?,?> option, float duration, long seed, int batchSize, int inFlight, CL_Runtime runtime ) {
+		if ( inFlight < 1 ) {
+			throw new IllegalArgumentException( "inFlight must be positive" );
+		}
+		_runtime = runtime;
+		_startPrice = (float) option.getStartPrice();
+		_interest = (float) option.getInterestRate();
+		_volatility = (float) option.getVolatility();
+		_duration = duration;
+		_seed = seed;
+		_offset = 0;
+		_batchSize = batchSize + batchSize % 2;
+
+		_deviceBuffers = new cl_mem[ inFlight ];
+		_hostBuffers = new FloatBuffer[ inFlight ];
+		_readEvents = new cl_event[ inFlight ];
+		for ( int i = 0; i < inFlight; i++ ) {
+			_deviceBuffers[i] = _runtime.createBuffer( CL_MEM_READ_WRITE, (long) Sizeof.cl_float * _batchSize, null );
+			// Non-blocking reads need host memory outside of the Java heap
+			_hostBuffers[i] = ByteBuffer.allocateDirect( Sizeof.cl_float * _batchSize )
+					.order( ByteOrder.nativeOrder() ).asFloatBuffer();
+		}
+		for ( int i = 0; i < inFlight; i++ ) {
+			submit( i );
+		}
+	}
+
+	// Getters
+	public int getBatchSize() {
+		return _batchSize;
+	}
+
+	public int getInFlight() {
+		return _deviceBuffers.length;
+	}
+
+	// Queue the generation and the read back of the next batch into a slot
+	private void submit( int slot ) {
+		cl_command_queue commandQueue = _runtime.getCommandQueue();
+		cl_kernel kernel = _runtime.getKernel( TERMINAL_SOURCE, "terminalPrices" );
+		cl_event kernelEvent = new cl_event();
+
+		synchronized ( kernel ) {
+			clSetKernelArg( kernel, 0, Sizeof.cl_ulong, Pointer.to( new long[]{ _seed } ) );
+			clSetKernelArg( kernel, 1, Sizeof.cl_ulong, Pointer.to( new long[]{ _offset } ) );
+			clSetKernelArg( kernel, 2, Sizeof.cl_float, Pointer.to( new float[]{ _startPrice } ) );
+			clSetKernelArg( kernel, 3, Sizeof.cl_float, Pointer.to( new float[]{ _interest } ) );
+			clSetKernelArg( kernel, 4, Sizeof.cl_float, Pointer.to( new float[]{ _volatility } ) );
+			clSetKernelArg( kernel, 5, Sizeof.cl_float, Pointer.to( new float[]{ _duration } ) );
+			clSetKernelArg( kernel, 6, Sizeof.cl_mem, Pointer.to( _deviceBuffers[ slot ] ) );
+
+			clEnqueueNDRangeKernel( commandQueue, kernel, 1, null,
+					new long[]{ _batchSize / 2 }, null, 0, null, kernelEvent );
+		}
+		_offset += _batchSize / 2;
+
+		// The read only depends on the kernel of its own slot and does not block the host
+		_readEvents[ slot ] = new cl_event();
+		clEnqueueReadBuffer( commandQueue, _deviceBuffers[ slot ], CL_FALSE, 0,
+				(long) Sizeof.cl_float * _batchSize, Pointer.to( _hostBuffers[ slot ] ),
+				1, new cl_event[]{ kernelEvent }, _readEvents[ slot ] );
+		clReleaseEvent( kernelEvent );
+		clFlush( commandQueue );
+	}
+
+	/**
+	 * Hand the next batch to the host. The batch returned by the previous call is given back
+	 * to the device, so the caller must be done with it.
+	 * @return the prices of the next batch
+	 */
+	public FloatBuffer next() {
+		if ( _consumed >= 0 ) {
+			submit( _consumed );
+		}
+		int slot = _head;
+		clWaitForEvents( 1, new cl_event[]{ _readEvents[ slot ] } );
+		clReleaseEvent( _readEvents[ slot ] );
+		_readEvents[ slot ] = null;
+
+		_consumed = slot;
+		_head = ( _head + 1 ) % _deviceBuffers.length;
+		_hostBuffers[ slot ].rewind();
+		return _hostBuffers[ slot ];
+	}
+
+	// Wait for the batches still in flight and release the device buffers
+	public void release() {
+		for ( int i = 0; i < _readEvents.length; i++ ) {
+			if ( _readEvents[i] != null ) {
+				clWaitForEvents( 1, new cl_event[]{ _readEvents[i] } );
+				clReleaseEvent( _readEvents[i] );
+				_readEvents[i] = null;
+			}
+		}
+		_runtime.release( _deviceBuffers );
+	}
+
+}
@@ -0,0 +1,271 @@
+package MonteCarlo;
+
+import static org.jocl.CL.CL_MEM_WRITE_ONLY;
+import static org.jocl.CL.CL_TRUE;
+import static org.jocl.CL.clEnqueueNDRangeKernel;
+import static org.jocl.CL.clEnqueueReadBuffer;
+import static org.jocl.CL.clSetKernelArg;
+
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+
+/**
+ * This class prices a whole batch of paths in a single kernel: the normals are generated with
+ * the Philox stream of CL_Generation, the price is evolved, the call payout is applied and every
+ * work group reduces its payouts to a sum and a sum of squares. Only these partial sums are read
+ * back, so the transfer per batch is proportional to the number of work groups, not of paths.
+ * The sums are double on devices with cl_khr_fp64, and compensated float sums otherwise.
+ * @author xiaog
+ *
+ */
+
+public class CL_FusedPricing {
+
+	// The sums are accumulated in acc_t, double when FUSED_DOUBLE is defined and float otherwise;
+	// the sums of a work item are compensated (Kahan), the tree reduction is pairwise
+	private static final String FUSED_SOURCE = CL_Generation.PHILOX_SOURCE
+			+ "#ifdef FUSED_DOUBLE\n"
+			+ "#pragma OPENCL EXTENSION cl_khr_fp64 : enable\n"
+			+ "typedef double acc_t;\n"
+			+ "#else\n"
+			+ "typedef float acc_t;\n"
+			+ "#endif\n"
+			+ "void kahan_add(acc_t* sum, acc_t* c, acc_t x)\n"
+			+ "{\n"
+			+ "    acc_t y = x - *c;\n"
+			+ "    acc_t t = *sum + y;\n"
+			+ "    *c = (t - *sum) - y;\n"
+			+ "    *sum = t;\n"
+			+ "}\n"
+			+ "__kernel void fusedPricing(const ulong seed, const ulong offset, const float S0, const float r,\n"
+			+ "        const float v, const float K, const int steps, const int asian, const int pathsPerItem,\n"
+			+ "        __global acc_t* partialSum, __global acc_t* partialSumSq,\n"
+			+ "        __local acc_t* localSum, __local acc_t* localSumSq)\n"
+			+ "{\n"
+			+ "    int gid = get_global_id(0);\n"
+			+ "    int lid = get_local_id(0);\n"
+			+ "    float drift = r - v * v / 2;\n"
+			+ "    acc_t sum = 0;\n"
+			+ "    acc_t sumSq = 0;\n"
+			+ "    acc_t sumC = 0;\n"
+			+ "    acc_t sumSqC = 0;\n"
+			+ "    for (int p = 0; p < pathsPerItem; p++) {\n"
+			+ "        ulong path = (ulong) gid * pathsPerItem + p;\n"
+			+ "        if (asian) {\n"
+			+ "            // one counter gives the normals of two time steps\n"
+			+ "            ulong counter = offset + path * ((steps + 1) / 2);\n"
+			+ "            float price = S0;\n"
+			+ "            float total = S0;\n"
+			+ "            for (int j = 0; j < steps; j += 2) {\n"
+			+ "                float2 z = philox_normal2(seed, counter + j / 2);\n"
+			+ "                price *= exp(drift + v * z.x);\n"
+			+ "                total += price;\n"
+			+ "                if (j + 1 < steps) {\n"
+			+ "                    price *= exp(drift + v * z.y);\n"
+			+ "                    total += price;\n"
+			+ "                }\n"
+			+ "            }\n"
+			+ "            acc_t payout = fmax(total / (steps + 1) - K, 0.0f);\n"
+			+ "            kahan_add(&sum, &sumC, payout);\n"
+			+ "            kahan_add(&sumSq, &sumSqC, payout * payout);\n"
+			+ "        } else {\n"
+			+ "            // one counter gives the terminal normals of two paths\n"
+			+ "            float2 z = philox_normal2(seed, offset + path);\n"
+			+ "            float T = steps;\n"
+			+ "            acc_t payout1 = fmax(S0 * exp(drift * T + v * sqrt(T) * z.x) - K, 0.0f);\n"
+			+ "            acc_t payout2 = fmax(S0 * exp(drift * T + v * sqrt(T) * z.y) - K, 0.0f);\n"
+			+ "            kahan_add(&sum, &sumC, payout1);\n"
+			+ "            kahan_add(&sum, &sumC, payout2);\n"
+			+ "            kahan_add(&sumSq, &sumSqC, payout1 * payout1);\n"
+			+ "            kahan_add(&sumSq, &sumSqC, payout2 * payout2);\n"
+			+ "        }\n"
+			+ "    }\n"
+			+ "    localSum[lid] = sum;\n"
+			+ "    localSumSq[lid] = sumSq;\n"
+			+ "    barrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "    // tree reduction, the work-group size is a power of two\n"
+			+ "    for (int stride = get_local_size(0) / 2; stride > 0; stride /= 2) {\n"
+			+ "        if (lid < stride) {\n"
+			+ "            localSum[lid] += localSum[lid + stride];\n"
+			+ "            localSumSq[lid] += localSumSq[lid + stride];\n"
+			+ "        }\n"
+			+ "        barrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "    }\n"
+			+ "    if (lid == 0) {\n"
+			+ "        partialSum[get_group_id(0)] = localSum[0];\n"
+			+ "        partialSumSq[get_group_id(0)] = localSumSq[0];\n"
+			+ "    }\n"
+			+ "}\n";
+
+	private CL_Runtime _runtime;
+	private float _startPrice;
+	private float _interest;
+	private float _volatility;
+	private float _strikePrice;
+	private int _steps;
+	private boolean _asian;
+	private long _seed;
+	private long _offset; // first Philox counter of the next batch
+	private int _workGroups = 64;
+	private int _groupSize;
+	private int _pathsPerItem = 16;
+	private String _source; // FUSED_SOURCE with the precision of the sums of this device
+	private boolean _double; // the sums are double on the device
+	private int _sumSize; // bytes of one sum on the device
+
+	// Partial sums of one batch, allocated once
+	private cl_mem _sumBuffer;
+	private cl_mem _sumSqBuffer;
+	private double[] _sums;
+	private double[] _sumSqs;
+	private float[] _floatSums; // read buffers of the float sums, null with double sums
+	private float[] _floatSumSqs;
+
+	/**
+	 * Constructors
+	 * @param option the option to price, "European" or "Asian"
+	 * @param steps number of time steps until maturity
+	 * @param seed key of the Philox stream
+	 * @param runtime the OpenCL device
+	 */
+	public CL_FusedPricing( Option<?,?> option, int steps, long seed, CL_Runtime runtime ) {
+		if ( "Asian".equals( option.getPayOutType() ) ) {
+			_asian = true;
+		} else if ( !"European".equals( option.getPayOutType() ) ) {
+			throw new IllegalArgumentException( "The type of the options is not included: " + option.getPayOutType() );
+		}
+		_runtime = runtime;
+		_startPrice = (float) option.getStartPrice();
+		_interest = (float) option.getInterestRate();
+		_volatility = (float) option.getVolatility();
+		_strikePrice = (float) option.getStrikePrice();
+		_steps = steps;
+		_seed = seed;
+		_offset = 0;
+
+		// sumSq - sum^2 / n loses the variance in float, so double is used where the device has it
+		_double = runtime.supportsDouble();
+		_source = _double ? "#define FUSED_DOUBLE\n" + FUSED_SOURCE : FUSED_SOURCE;
+		_sumSize = _double ? Sizeof.cl_double : Sizeof.cl_float;
+
+		// The tree reduction needs a power of two work-group size
+		_groupSize = 1;
+		while ( _groupSize * 2 <= Math.min( 256, runtime.getMaxWorkGroupSize() ) ) {
+			_groupSize *= 2;
+		}
+		allocate();
+	}
+
+	// Modifiers
+	public void setWorkGroups( int workGroups ) {
+		release();
+		_workGroups = workGroups;
+		allocate();
+	}
+
+	public void setPathsPerItem( int pathsPerItem ) {
+		_pathsPerItem = pathsPerItem;
+	}
+
+	// Getters
+	public int getWorkGroups() {
+		return _workGroups;
+	}
+
+	public int getGroupSize() {
+		return _groupSize;
+	}
+
+	public long getOffset() {
+		return _offset;
+	}
+
+	// Number of payouts summarized by one batch
+	public long getBatchPaths() {
+		long items = (long) _workGroups * _groupSize * _pathsPerItem;
+		return _asian ? items : 2 * items;
+	}
+
+	private void allocate() {
+		_sumBuffer = _runtime.createBuffer( CL_MEM_WRITE_ONLY, (long) _sumSize * _workGroups, null );
+		_sumSqBuffer = _runtime.createBuffer( CL_MEM_WRITE_ONLY, (long) _sumSize * _workGroups, null );
+		_sums = new double[ _workGroups ];
+		_sumSqs = new double[ _workGroups ];
+		if ( !_double ) {
+			_floatSums = new float[ _workGroups ];
+			_floatSumSqs = new float[ _workGroups ];
+		}
+	}
+
+	/**
+	 * Run one batch on the device and summarize it
+	 * @return the statistics of the undiscounted payouts of the batch
+	 */
+	public StatsCollector nextBatch() {
+		cl_command_queue commandQueue = _runtime.getCommandQueue();
+		cl_kernel kernel = _runtime.getKernel( _source, "fusedPricing" );
+
+		long global_work_size[] = new long[]{ (long) _workGroups * _groupSize };
+		long local_work_size[] = new long[]{ _groupSize };
+
+		synchronized ( kernel ) {
+			// Set the arguments for the kernel
+			clSetKernelArg( kernel, 0, Sizeof.cl_ulong, Pointer.to( new long[]{ _seed } ) );
+			clSetKernelArg( kernel, 1, Sizeof.cl_ulong, Pointer.to( new long[]{ _offset } ) );
+			clSetKernelArg( kernel, 2, Sizeof.cl_float, Pointer.to( new float[]{ _startPrice } ) );
+			clSetKernelArg( kernel, 3, Sizeof.cl_float, Pointer.to( new float[]{ _interest } ) );
+			clSetKernelArg( kernel, 4, Sizeof.cl_float, Pointer.to( new float[]{ _volatility } ) );
+			clSetKernelArg( kernel, 5, Sizeof.cl_float, Pointer.to( new float[]{ _strikePrice } ) );
+			clSetKernelArg( kernel, 6, Sizeof.cl_int, Pointer.to( new int[]{ _steps } ) );
+			clSetKernelArg( kernel, 7, Sizeof.cl_int, Pointer.to( new int[]{ _asian ? 1 : 0 } ) );
+			clSetKernelArg( kernel, 8, Sizeof.cl_int, Pointer.to( new int[]{ _pathsPerItem } ) );
+			clSetKernelArg( kernel, 9, Sizeof.cl_mem, Pointer.to( _sumBuffer ) );
+			clSetKernelArg( kernel, 10, Sizeof.cl_mem, Pointer.to( _sumSqBuffer ) );
+			clSetKernelArg( kernel, 11, (long) _sumSize * _groupSize, null );
+			clSetKernelArg( kernel, 12, (long) _sumSize * _groupSize, null );
+
+			// Execute the kernel
+			clEnqueueNDRangeKernel( commandQueue, kernel, 1, null,
+					global_work_size, local_work_size, 0, null, null );
+		}
+
+		// Read the partial sums of the work groups
+		if ( _double ) {
+			clEnqueueReadBuffer( commandQueue, _sumBuffer, CL_TRUE, 0,
+					(long) _sumSize * _workGroups, Pointer.to( _sums ), 0, null, null );
+			clEnqueueReadBuffer( commandQueue, _sumSqBuffer, CL_TRUE, 0,
+					(long) _sumSize * _workGroups, Pointer.to( _sumSqs ), 0, null, null );
+		} else {
+			clEnqueueReadBuffer( commandQueue, _sumBuffer, CL_TRUE, 0,
+					(long) _sumSize * _workGroups, Pointer.to( _floatSums ), 0, null, null );
+			clEnqueueReadBuffer( commandQueue, _sumSqBuffer, CL_TRUE, 0,
+					(long) _sumSize * _workGroups, Pointer.to( _floatSumSqs ), 0, null, null );
+			for ( int i = 0; i < _workGroups; i++ ) {
+				_sums[i] = _floatSums[i];
+				_sumSqs[i] = _floatSumSqs[i];
+			}
+		}
+
+		// Advance the stream by the counters used in this batch
+		long items = (long) _workGroups * _groupSize * _pathsPerItem;
+		_offset += _asian ? items * ( ( _steps + 1 ) / 2 ) : items;
+
+		StatsCollector collector = new StatsCollector();
+		long groupPaths = getBatchPaths() / _workGroups;
+		for ( int i = 0; i < _workGroups; i++ ) {
+			collector.merge( groupPaths, _sums[i], _sumSqs[i] );
+		}
+		return collector;
+	}
+
+	// Release the device buffers of the partial sums
+	public void release() {
+		_runtime.release( _sumBuffer, _sumSqBuffer );
+		_sumBuffer = null;
+		_sumSqBuffer = null;
+	}
+
+}
@@ -1,302 +1,285 @@
-package MonteCarlo;
-
-import static org.jocl.CL.CL_CONTEXT_PLATFORM;
-import static org.jocl.CL.CL_DEVICE_MAX_COMPUTE_UNITS;
-import static org.jocl.CL.CL_DEVICE_NAME;
-import static org.jocl.CL.CL_DEVICE_TYPE_GPU;
-import static org.jocl.CL.CL_DEVICE_VENDOR;
-import static org.jocl.CL.CL_DRIVER_VERSION;
-import static org.jocl.CL.CL_MEM_COPY_HOST_PTR;
-import static org.jocl.CL.CL_MEM_READ_ONLY;
-import static org.jocl.CL.CL_MEM_READ_WRITE;
-import static org.jocl.CL.CL_TRUE;
-import static org.jocl.CL.clBuildProgram;
-import static org.jocl.CL.clCreateBuffer;
-import static org.jocl.CL.clCreateCommandQueue;
-import static org.jocl.CL.clCreateContext;
-import static org.jocl.CL.clCreateKernel;
-import static org.jocl.CL.clCreateProgramWithSource;
-import static org.jocl.CL.clEnqueueNDRangeKernel;
-import static org.jocl.CL.clEnqueueReadBuffer;
-import static org.jocl.CL.clGetDeviceIDs;
-import static org.jocl.CL.clGetPlatformIDs;
-import static org.jocl.CL.clSetKernelArg;
-
-import java.util.ArrayList;
-
-
-import org.jocl.Pointer;
-import org.jocl.Sizeof;
-import org.jocl.cl_command_queue;
-import org.jocl.cl_context;
-import org.jocl.cl_context_properties;
-import org.jocl.cl_device_id;
-import org.jocl.cl_kernel;
-import org.jocl.cl_mem;
-import org.jocl.cl_platform_id;
-import org.jocl.cl_program;
-
-public class CL_Generation {
-	
-	private int _trial;
-	ArrayList<float[]> _gaussianVec; 
-	
-	public CL_Generation( int trial ) {
-		_trial = trial;
-		_gaussianVec = new ArrayList<float[]>();
-	}
-	
-	/**
-	 * This method generates the stock paths using Java CL
-	 * @param trial
-	 * @return
-	 */
-	public ArrayList<float[]> getGaussianVector() {
-		
-		int num = _trial;
-		
-		// In what follows, we generate the paths
-		cl_platform_id[] platforms = new cl_platform_id[1];      
-        clGetPlatformIDs( 1, platforms, null );      
-        cl_platform_id platform = platforms[0];
-        cl_device_id[] devices = new cl_device_id[1];
-        clGetDeviceIDs( platform,  CL_DEVICE_TYPE_GPU, 1, devices, null );       
-        cl_device_id device = devices[0];
-
-        // Initialize the context properties
-        cl_context_properties contextProperties = new cl_context_properties();
-        contextProperties.addProperty( CL_CONTEXT_PLATFORM, platform );
-
-        // Create a context for the selected device
-        cl_context context = clCreateContext(
-                contextProperties, 1, new cl_device_id[]{device},
-                null, null, null );
-
-        // Create a command-queue for the selected device
-        @SuppressWarnings( "deprecation" )
-		cl_command_queue commandQueue =
-                clCreateCommandQueue( context, device, 0, null );
-
-        // Read the program sources and compile them :
-		// Read the program sources and compile them :
-		String src = "__kernel void gaussian(__global const float* a, __global const float* b, __global float* out1, __global float* out2)\n " +
-				"{\n" + 
-				"   int i = get_global_id(0);\n" +
-				"   out1[i] = sqrt(-2*log(a[i]))*cos(2*b[i]*3.1415926);\n" +
-				"   out2[i] = sqrt(-2*log(a[i]))*sin(2*b[i]*3.1415926);\n" +
-			    "}\n";
-		
-
-        // Create the program from the source code
-        cl_program program = clCreateProgramWithSource( context,
-                1, new String[]{ src }, null, null );
-
-        // Build the program
-        clBuildProgram( program, 0, null, null, null, null );
-
-        // Create the kernel
-        cl_kernel kernel = clCreateKernel( program, "gaussian", null );
-
-        
-        // Define the vectors
-        float uniformA[] = new float[num];
-        float uniformB[] = new float[num];
-        float gaussianA[] = new float[num];
-        float gaussianB[] = new float[num];
-        
-        // Generate two sequences of uniform random variables
-        for ( int i = 0; i < num; i++ )
-        {
-            uniformA[i] = (float) Math.random();
-            uniformB[i] = (float) Math.random();
-        }
-        
-        // Set the pointers
-        Pointer uniA = Pointer.to( uniformA );
-        Pointer uniB = Pointer.to( uniformB );
-        Pointer gauA = Pointer.to( gaussianA );
-        Pointer gauB = Pointer.to( gaussianB );
-
-        // Allocate the memory objects for the input- and output data
-        cl_mem memObjects[] = new cl_mem[5];
-        
-        memObjects[0] = clCreateBuffer( context,
-                CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
-                Sizeof.cl_float * num, uniA, null );
-        memObjects[1] = clCreateBuffer( context,
-                CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
-                Sizeof.cl_float * num, uniB, null );
-        memObjects[2] = clCreateBuffer( context,
-                CL_MEM_READ_WRITE,
-                Sizeof.cl_float * num, null, null );
-        memObjects[3] = clCreateBuffer( context,
-                CL_MEM_READ_WRITE,
-                Sizeof.cl_float * num, null, null );
-
-        // System.out.println( System.currentTimeMillis() - tmp );
-
-        // Set the arguments for the kernel
-        clSetKernelArg( kernel, 0,
-                Sizeof.cl_mem, Pointer.to( memObjects[0] ) );
-        clSetKernelArg( kernel, 1,
-                Sizeof.cl_mem, Pointer.to( memObjects[1] ) );
-        clSetKernelArg( kernel, 2,
-                Sizeof.cl_mem, Pointer.to( memObjects[2] ) );
-        clSetKernelArg( kernel, 3,
-                Sizeof.cl_mem, Pointer.to( memObjects[3] ) );
-
-
-        // System.out.println((System.currentTimeMillis() - tmp));
-
-        // Set the work-item dimensions
-        long global_work_size[] = new long[]{ num };
-        long local_work_size[] = new long[]{1};
-
-        // Execute the kernel
-        clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
-                global_work_size, local_work_size, 0, null, null);
-
-        // Read the output data
-        clEnqueueReadBuffer( commandQueue, memObjects[3], CL_TRUE, 0,
-                num * Sizeof.cl_float, gauB, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[2], CL_TRUE, 0,
-                num * Sizeof.cl_float, gauA, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[0], CL_TRUE, 0,
-                num * Sizeof.cl_float, uniA, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[1], CL_TRUE, 0,
-                num * Sizeof.cl_float, uniB, 0, null, null );
-        
-        // pull out the results
-        ArrayList<float[]> results = new ArrayList<float[]>();
-        results.add( gaussianA );
-        results.add( gaussianB );
-        _gaussianVec = results;
-        return results;
-
-	}
-	
-	/**
-	 * 
-	 * @param normalVec normal random vectors
-	 * @param r interest rate
-	 * @param v volatility
-	 * @return
-	 */
-	public float[] StockBrownianPath( float[] normalVec, float[] r, float[] v ) {
-		
-		
-		// In what follows, we generate the paths
-		cl_platform_id[] platforms = new cl_platform_id[1];      
-        clGetPlatformIDs( 1, platforms, null );      
-        cl_platform_id platform = platforms[0];
-        cl_device_id[] devices = new cl_device_id[1];
-        clGetDeviceIDs( platform,  CL_DEVICE_TYPE_GPU, 1, devices, null );       
-        cl_device_id device = devices[0];
-
-        // Initialize the context properties
-        cl_context_properties contextProperties = new cl_context_properties();
-        contextProperties.addProperty( CL_CONTEXT_PLATFORM, platform );
-
-        // Create a context for the selected device
-        cl_context context = clCreateContext(
-                contextProperties, 1, new cl_device_id[]{device},
-                null, null, null );
-
-        // Create a command-queue for the selected device
-        @SuppressWarnings( "deprecation" )
-		cl_command_queue commandQueue =
-                clCreateCommandQueue( context, device, 0, null );
-
-        // Read the program sources and compile them :
-		// Read the program sources and compile them :
-		String src2 = "__kernel void geoBrownian(__global float* r, __global float* v, __global float* c, __global float* out3)\n"
-				+ "{\n" 
-				+ "    int i = get_global_id(0);\n" 
-				+ "    if (i >= n-1)\n" 
-				+ "        return;\n" 
-				+ "\n"
-				+ "out3[0] = exp(r[0] - v[0]*v[0]/2 + v[0]*c[0]);\n"
-				+ "out3[i+1] = out3[i]*exp(r[0] - v[0]*v[0]/2 + v[0]*c[i]);\n"
-				+ "}";
-		
-
-        // Create the program from the source code
-        cl_program program = clCreateProgramWithSource( context,
-                1, new String[]{ src2 }, null, null );
-
-        // Build the program
-        clBuildProgram( program, 0, null, null, null, null );
-
-        // Create the kernel
-        cl_kernel kernel = clCreateKernel( program, "geoBrownian", null );
-
-        
-        // Define the vectors
-        int length = normalVec.length + 1;
-        float prices[] = new float[ length ];
-
-
-        // Set the pointers
-        Pointer norm = Pointer.to( normalVec );
-        Pointer stockPrice = Pointer.to( prices );
-        Pointer interest = Pointer.to( r );
-        Pointer volatility = Pointer.to( v );
-        
-
-
-        // Allocate the memory objects for the input- and output data
-        cl_mem memObjects[] = new cl_mem[5];
-        
-        memObjects[0] = clCreateBuffer( context,
-                CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
-                Sizeof.cl_float * length, interest, null );
-        memObjects[1] = clCreateBuffer( context,
-                CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
-                Sizeof.cl_float * length, volatility, null );
-        memObjects[2] = clCreateBuffer( context,
-        		CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
-                Sizeof.cl_float * length, norm, null );
-        memObjects[3] = clCreateBuffer( context,
-                CL_MEM_READ_WRITE,
-                Sizeof.cl_float * length, null, null );
-
-        // System.out.println( System.currentTimeMillis() - tmp );
-
-        // Set the arguments for the kernel
-        clSetKernelArg( kernel, 0,
-                Sizeof.cl_mem, Pointer.to( memObjects[0] ) );
-        clSetKernelArg( kernel, 1,
-                Sizeof.cl_mem, Pointer.to( memObjects[1] ) );
-        clSetKernelArg( kernel, 2,
-                Sizeof.cl_mem, Pointer.to( memObjects[2] ) );
-        clSetKernelArg( kernel, 3,
-                Sizeof.cl_mem, Pointer.to( memObjects[3] ) );
-
-
-        // System.out.println((System.currentTimeMillis() - tmp));
-
-        // Set the work-item dimensions
-        long global_work_size[] = new long[]{ length };
-        long local_work_size[] = new long[]{1};
-
-        // Execute the kernel
-        clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
-                global_work_size, local_work_size, 0, null, null);
-
-        // Read the output data
-        clEnqueueReadBuffer( commandQueue, memObjects[3], CL_TRUE, 0,
-        		length * Sizeof.cl_float, stockPrice, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[2], CL_TRUE, 0,
-        		length * Sizeof.cl_float, norm, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[0], CL_TRUE, 0,
-        		length * Sizeof.cl_float, interest, 0, null, null );
-        clEnqueueReadBuffer( commandQueue, memObjects[1], CL_TRUE, 0,
-        		length * Sizeof.cl_float, volatility, 0, null, null );
-        
-        // pull out the results
-        return prices;
-
-	}
-	
-
-}
+package MonteCarlo;
+
+import static org.jocl.CL.CL_MEM_COPY_HOST_PTR;
+import static org.jocl.CL.CL_MEM_READ_ONLY;
+import static org.jocl.CL.CL_MEM_READ_WRITE;
+import static org.jocl.CL.CL_TRUE;
+import static org.jocl.CL.clEnqueueNDRangeKernel;
+import static org.jocl.CL.clEnqueueReadBuffer;
+import static org.jocl.CL.clSetKernelArg;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+
+public class CL_Generation {
+	
+	/**
+	 * Counter-based Philox4x32-10 generator. A 64-bit key and a 64-bit counter give four
+	 * random words, so a stream is reproducible from its seed and offset alone.
+	 * philox_normal2 turns the first two words into two normals with Box-Muller.
+	 */
+	static final String PHILOX_SOURCE =
+			"uint4 philox4x32_10(uint4 c, uint2 k)\n"
+			+ "{\n"
+			+ "    for (int r = 0; r < 10; r++) {\n"
+			+ "        if (r > 0) { k.x += 0x9E3779B9u; k.y += 0xBB67AE85u; }\n"
+			+ "        uint lo0 = 0xD2511F53u * c.x; uint hi0 = mul_hi(0xD2511F53u, c.x);\n"
+			+ "        uint lo1 = 0xCD9E8D57u * c.z; uint hi1 = mul_hi(0xCD9E8D57u, c.z);\n"
+			+ "        c = (uint4)(hi1 ^ c.y ^ k.x, lo1, hi0 ^ c.w ^ k.y, lo0);\n"
+			+ "    }\n"
+			+ "    return c;\n"
+			+ "}\n"
+			+ "float philox_uniform(uint x)\n"
+			+ "{\n"
+			+ "    return ((x >> 8) + 0.5f) * (1.0f / 16777216.0f);\n"
+			+ "}\n"
+			+ "float2 philox_normal2(ulong seed, ulong counter)\n"
+			+ "{\n"
+			+ "    uint4 w = philox4x32_10((uint4)((uint) counter, (uint) (counter >> 32), 0u, 0u), (uint2)((uint) seed, (uint) (seed >> 32)));\n"
+			+ "    float radius = sqrt(-2.0f * log(philox_uniform(w.x)));\n"
+			+ "    float angle = 6.28318530718f * philox_uniform(w.y);\n"
+			+ "    return (float2)(radius * cos(angle), radius * sin(angle));\n"
+			+ "}\n";
+	
+	// Normals are generated on the device, work item i uses the counter offset + i
+	private static final String GAUSSIAN_SOURCE = PHILOX_SOURCE
+			+ "__kernel void gaussian(const ulong seed, const ulong offset, __global float* out1, __global float* out2)\n"
+			+ "{\n"
+			+ "    int i = get_global_id(0);\n"
+			+ "    float2 z = philox_normal2(seed, offset + i);\n"
+			+ "    out1[i] = z.x;\n"
+			+ "    out2[i] = z.y;\n"
+			+ "}\n";
+	
+	// The recurrence of the path is sequential, so a single work item walks the whole path
+	private static final String BROWNIAN_SOURCE =
+			"__kernel void geoBrownian(const float r, const float v, __global const float* c, __global float* out3, const int n)\n"
+			+ "{\n" 
+			+ "    out3[0] = 1.0f;\n"
+			+ "    for (int i = 0; i < n; i++)\n" 
+			+ "        out3[i+1] = out3[i]*exp(r - v*v/2 + v*c[i]);\n"
+			+ "}";
+	
+	private int _trial;
+	private long _seed; // key of the counter-based generator
+	private long _offset; // counter of the next normal pair
+	private CL_Runtime _runtime;
+	ArrayList<float[]> _gaussianVec; 
+	
+	public CL_Generation( int trial ) {
+		this( trial, new Random().nextLong(), CL_Runtime.getDefault() );
+	}
+	
+	public CL_Generation( int trial, CL_Runtime runtime ) {
+		this( trial, new Random().nextLong(), runtime );
+	}
+	
+	public CL_Generation( int trial, long seed ) {
+		this( trial, seed, CL_Runtime.getDefault() );
+	}
+	
+	public CL_Generation( int trial, long seed, CL_Runtime runtime ) {
+		_trial = trial;
+		_seed = seed;
+		_offset = 0;
+		_runtime = runtime;
+		_gaussianVec = new ArrayList<float[]>();
+	}
+	
+	// Modifiers
+	public void setSeed( long seed ) {
+		_seed = seed;
+	}
+	
+	public void setOffset( long offset ) {
+		_offset = offset;
+	}
+	
+	// Getters
+	public long getSeed() {
+		return _seed;
+	}
+	
+	public long getOffset() {
+		return _offset;
+	}
+	
+	/**
+	 * Generate the next two normal sequences on the device without any upload. The stream
+	 * advances by the number of trials, the caller owns and must release the returned buffers.
+	 * @return two device buffers of _trial floats each
+	 */
+	public cl_mem[] getGaussianBuffers() {
+		
+		int num = _trial;
+		
+        // Allocate the memory objects for the output data
+        cl_mem memObjects[] = new cl_mem[2];
+        memObjects[0] = _runtime.createBuffer(
+                CL_MEM_READ_WRITE,
+                Sizeof.cl_float * num, null );
+        memObjects[1] = _runtime.createBuffer(
+                CL_MEM_READ_WRITE,
+                Sizeof.cl_float * num, null );
+
+        enqueueGaussian( memObjects[0], memObjects[1], _offset, num );
+        _offset += num;
+        return memObjects;
+	}
+	
+	/**
+	 * Generate the next normals straight into two host buffers of the same length. Nothing goes
+	 * through the Java heap and the length may exceed 2^31; the stream advances by the length.
+	 * @param first receives the first normal of every counter
+	 * @param second receives the second normal of every counter
+	 */
+	public void fillGaussian( CL_HostBuffer first, CL_HostBuffer second ) {
+		if ( first.getLength() != second.getLength() || first.getChunks() != second.getChunks() ) {
+			throw new IllegalArgumentException( "The buffers must have the same length and chunks" );
+		}
+		first.unmap();
+		second.unmap();
+		for ( int i = 0; i < first.getChunks(); i++ ) {
+			enqueueGaussian( first.getMem( i ), second.getMem( i ),
+					_offset + first.getChunkStart( i ), first.getChunkLength( i ) );
+		}
+		_offset += first.getLength();
+		// The host reads the normals in place
+		first.map();
+		second.map();
+	}
+	
+	// Queue the gaussian kernel, work item i uses the counter offset + i
+	private void enqueueGaussian( cl_mem out1, cl_mem out2, long offset, int num ) {
+		cl_command_queue commandQueue = _runtime.getCommandQueue();
+		cl_kernel kernel = _runtime.getKernel( GAUSSIAN_SOURCE, "gaussian" );
+
+        // Set the work-item dimensions
+        long global_work_size[] = new long[]{ num };
+
+        synchronized ( kernel ) {
+            // Set the arguments for the kernel
+            clSetKernelArg( kernel, 0,
+                    Sizeof.cl_ulong, Pointer.to( new long[]{ _seed } ) );
+            clSetKernelArg( kernel, 1,
+                    Sizeof.cl_ulong, Pointer.to( new long[]{ offset } ) );
+            clSetKernelArg( kernel, 2,
+                    Sizeof.cl_mem, Pointer.to( out1 ) );
+            clSetKernelArg( kernel, 3,
+                    Sizeof.cl_mem, Pointer.to( out2 ) );
+
+            // Execute the kernel, the work-group size is left to the driver
+            clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
+                    global_work_size, null, 0, null, null);
+        }
+	}
+	
+	/**
+	 * This method generates the standard normal samples using Java CL
+	 * @return two arrays of _trial normal samples
+	 */
+	public ArrayList<float[]> getGaussianVector() {
+		
+		int num = _trial;
+		cl_command_queue commandQueue = _runtime.getCommandQueue();
+		cl_mem memObjects[] = getGaussianBuffers();
+		
+        // Define the vectors
+        float gaussianA[] = new float[num];
+        float gaussianB[] = new float[num];
+
+        // Read the output data
+        clEnqueueReadBuffer( commandQueue, memObjects[0], CL_TRUE, 0,
+                num * Sizeof.cl_float, Pointer.to( gaussianA ), 0, null, null );
+        clEnqueueReadBuffer( commandQueue, memObjects[1], CL_TRUE, 0,
+                num * Sizeof.cl_float, Pointer.to( gaussianB ), 0, null, null );
+        
+        // The device buffers are not needed any more
+        _runtime.release( memObjects );
+        
+        // pull out the results
+        ArrayList<float[]> results = new ArrayList<float[]>();
+        results.add( gaussianA );
+        results.add( gaussianB );
+        _gaussianVec = results;
+        return results;
+
+	}
+	
+	/**
+	 * 
+	 * @param normalVec normal random vectors
+	 * @param r interest rate
+	 * @param v volatility
+	 * @return the path relative to the initial price, of length normalVec.length + 1
+	 */
+	public float[] StockBrownianPath( float[] normalVec, float[] r, float[] v ) {
+		
+		// The context, queue and program are shared by all the calls
+		cl_command_queue commandQueue = _runtime.getCommandQueue();
+		cl_kernel kernel = _runtime.getKernel( BROWNIAN_SOURCE, "geoBrownian" );
+
+        
+        // Define the vectors
+        int length = normalVec.length + 1;
+        float prices[] = new float[ length ];
+
+
+        // Set the pointers
+        Pointer norm = Pointer.to( normalVec );
+        Pointer stockPrice = Pointer.to( prices );
+        
+
+
+        // Allocate the memory objects for the input- and output data
+        cl_mem memObjects[] = new cl_mem[2];
+        
+        memObjects[0] = _runtime.createBuffer(
+        		CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR,
+                Sizeof.cl_float * normalVec.length, norm );
+        memObjects[1] = _runtime.createBuffer(
+                CL_MEM_READ_WRITE,
+                Sizeof.cl_float * length, null );
+
+        // Set the work-item dimensions
+        long global_work_size[] = new long[]{ 1 };
+
+        synchronized ( kernel ) {
+            // Set the arguments for the kernel
+            clSetKernelArg( kernel, 0,
+                    Sizeof.cl_float, Pointer.to( r ) );
+            clSetKernelArg( kernel, 1,
+                    Sizeof.cl_float, Pointer.to( v ) );
+            clSetKernelArg( kernel, 2,
+                    Sizeof.cl_mem, Pointer.to( memObjects[0] ) );
+            clSetKernelArg( kernel, 3,
+                    Sizeof.cl_mem, Pointer.to( memObjects[1] ) );
+            clSetKernelArg( kernel, 4,
+                    Sizeof.cl_int, Pointer.to( new int[]{ normalVec.length } ) );
+
+            // Execute the kernel
+            clEnqueueNDRangeKernel(commandQueue, kernel, 1, null,
+                    global_work_size, null, 0, null, null);
+        }
+
+        // Read the output data
+        clEnqueueReadBuffer( commandQueue, memObjects[1], CL_TRUE, 0,
+        		length * Sizeof.cl_float, stockPrice, 0, null, null );
+        
+        // The device buffers are not needed any more
+        _runtime.release( memObjects );
+        
+        // pull out the results
+        return prices;
+
+	}
+	
+
+}
@@ -0,0 +1,207 @@
+package MonteCarlo;
+
+import static org.jocl.CL.CL_MAP_READ;
+import static org.jocl.CL.CL_MAP_WRITE;
+import static org.jocl.CL.CL_MEM_ALLOC_HOST_PTR;
+import static org.jocl.CL.CL_MEM_READ_WRITE;
+import static org.jocl.CL.CL_MEM_USE_HOST_PTR;
+import static org.jocl.CL.CL_TRUE;
+import static org.jocl.CL.clEnqueueMapBuffer;
+import static org.jocl.CL.clEnqueueUnmapMemObject;
+import static org.jocl.CL.clFinish;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_mem;
+
+/**
+ * This class is a float buffer shared by the host and the device, allocated once outside of the
+ * Java heap. The memory is either allocated by the driver (CL_MEM_ALLOC_HOST_PTR) or is a page
+ * aligned direct ByteBuffer handed to the device (CL_MEM_USE_HOST_PTR); on CPU devices and
+ * integrated GPUs mapping it is then free, on discrete GPUs the driver copies through pinned
+ * memory. In both cases JOCL never pins or copies a Java array.
+ *
+ * A ByteBuffer holds at most 2^31 bytes, so the buffer is cut into chunks with one cl_mem each,
+ * and the length and the indices are long. A kernel runs once per chunk on getMem.
+ *
+ * The buffer belongs either to the host or to the device: map() hands it to the host, whose
+ * get and put then work on the device memory directly, and unmap() gives it back before a
+ * kernel uses it. The class is not thread safe.
+ * @author xiaog
+ *
+ */
+
+public class CL_HostBuffer {
+
+	// Floats per chunk, 1 GB, so a chunk fits in a ByteBuffer and in one device allocation
+	public static final int MAX_CHUNK_LENGTH = 1 << 28;
+	private static final int PAGE_SIZE = 4096; // alignment needed for zero copy with USE_HOST_PTR
+
+	private CL_Runtime _runtime;
+	private long _length;
+	private int _chunkLength;
+	private cl_mem[] _mems;
+	private ByteBuffer[] _hostMemory; // the direct buffers given to the device with USE_HOST_PTR
+	private ByteBuffer[] _mapped; // the mapped regions, null while the device owns the buffer
+	private FloatBuffer[] _views;
+
+	/**
+	 * A buffer allocated by the driver in host accessible memory
+	 * @param runtime the OpenCL device
+	 * @param length number of floats
+	 */
+	public CL_HostBuffer( CL_Runtime runtime, long length ) {
+		this( runtime, length, false, MAX_CHUNK_LENGTH );
+	}
+
+	/**
+	 *
+	 * @param runtime the OpenCL device
+	 * @param length number of floats
+	 * @param useHostPtr true to allocate the memory in Java and use it with CL_MEM_USE_HOST_PTR,
+	 *        false to let the driver allocate it with CL_MEM_ALLOC_HOST_PTR
+	 * @param chunkLength floats per chunk, e.g. below CL_DEVICE_MAX_MEM_ALLOC_SIZE of a small device
+	 */
+	public CL_HostBuffer( CL_Runtime runtime, long length, boolean useHostPtr, int chunkLength ) {
+		if ( length < 1 ) {
+			throw new IllegalArgumentException( "length must be positive" );
+		}
+		if ( chunkLength < 1 || chunkLength > MAX_CHUNK_LENGTH ) {
+			throw new IllegalArgumentException( "chunkLength must be in [1, " + MAX_CHUNK_LENGTH + "]" );
+		}
+		_runtime = runtime;
+		_length = length;
+		_chunkLength = chunkLength;
+
+		int chunks = (int) ( ( length + chunkLength - 1 ) / chunkLength );
+		_mems = new cl_mem[ chunks ];
+		_mapped = new ByteBuffer[ chunks ];
+		_views = new FloatBuffer[ chunks ];
+		if ( useHostPtr ) {
+			_hostMemory = new ByteBuffer[ chunks ];
+		}
+		for ( int i = 0; i < chunks; i++ ) {
+			long bytes = (long) Sizeof.cl_float * getChunkLength( i );
+			if ( useHostPtr ) {
+				_hostMemory[i] = ByteBuffer.allocateDirect( (int) bytes + PAGE_SIZE - 1 )
+						.alignedSlice( PAGE_SIZE ).order( ByteOrder.nativeOrder() );
+				_hostMemory[i].limit( (int) bytes );
+				_mems[i] = _runtime.createBuffer( CL_MEM_READ_WRITE | CL_MEM_USE_HOST_PTR, bytes,
+						Pointer.to( _hostMemory[i] ) );
+			} else {
+				_mems[i] = _runtime.createBuffer( CL_MEM_READ_WRITE | CL_MEM_ALLOC_HOST_PTR, bytes, null );
+			}
+		}
+	}
+
+	// Getters
+	public long getLength() {
+		return _length;
+	}
+
+	public int getChunks() {
+		return _mems.length;
+	}
+
+	public int getChunkLength( int chunk ) {
+		return (int) Math.min( _chunkLength, _length - (long) chunk * _chunkLength );
+	}
+
+	// Index of the first float of a chunk
+	public long getChunkStart( int chunk ) {
+		return (long) chunk * _chunkLength;
+	}
+
+	public boolean isMapped() {
+		return _mapped[0] != null;
+	}
+
+	/**
+	 *
+	 * @param chunk index of the chunk
+	 * @return the device buffer of the chunk, for a kernel argument
+	 */
+	public cl_mem getMem( int chunk ) {
+		if ( isMapped() ) {
+			throw new IllegalStateException( "The buffer is mapped, unmap it before a kernel uses it" );
+		}
+		return _mems[ chunk ];
+	}
+
+	/**
+	 * Hand the buffer to the host. The call waits for the commands queued before it, so the
+	 * results of the kernels are visible when it returns. Nothing happens when it is mapped already.
+	 */
+	public void map() {
+		if ( isMapped() ) {
+			return;
+		}
+		for ( int i = 0; i < _mems.length; i++ ) {
+			long bytes = (long) Sizeof.cl_float * getChunkLength( i );
+			_mapped[i] = clEnqueueMapBuffer( _runtime.getCommandQueue(), _mems[i], CL_TRUE,
+					CL_MAP_READ | CL_MAP_WRITE, 0, bytes, 0, null, null, null )
+					.order( ByteOrder.nativeOrder() );
+			_views[i] = _mapped[i].asFloatBuffer();
+		}
+	}
+
+	// Give the buffer back to the device, nothing happens when it is not mapped
+	public void unmap() {
+		if ( !isMapped() ) {
+			return;
+		}
+		for ( int i = 0; i < _mems.length; i++ ) {
+			clEnqueueUnmapMemObject( _runtime.getCommandQueue(), _mems[i], _mapped[i], 0, null, null );
+			_mapped[i] = null;
+			_views[i] = null;
+		}
+	}
+
+	/**
+	 *
+	 * @param index of the float, below getLength()
+	 * @return the float read from the mapped memory
+	 */
+	public float get( long index ) {
+		return view( index ).get( (int) ( index % _chunkLength ) );
+	}
+
+	public void put( long index, float value ) {
+		view( index ).put( (int) ( index % _chunkLength ), value );
+	}
+
+	/**
+	 * A view of the mapped memory of one chunk for bulk access, valid until the next unmap()
+	 * @param chunk index of the chunk
+	 * @return a new buffer positioned at the start of the chunk
+	 */
+	public FloatBuffer asFloatBuffer( int chunk ) {
+		if ( !isMapped() ) {
+			throw new IllegalStateException( "The buffer is not mapped" );
+		}
+		return _views[ chunk ].duplicate();
+	}
+
+	private FloatBuffer view( long index ) {
+		if ( index < 0 || index >= _length ) {
+			throw new IndexOutOfBoundsException( "index " + index + " out of [0, " + _length + ")" );
+		}
+		if ( !isMapped() ) {
+			throw new IllegalStateException( "The buffer is not mapped" );
+		}
+		return _views[ (int) ( index / _chunkLength ) ];
+	}
+
+	// Release the device buffers, after the commands still using them
+	public void release() {
+		unmap();
+		clFinish( _runtime.getCommandQueue() );
+		_runtime.release( _mems );
+		_hostMemory = null;
+	}
+
+}
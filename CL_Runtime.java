@@ -0,0 +1,283 @@
+package MonteCarlo;
+
+import static org.jocl.CL.CL_CONTEXT_PLATFORM;
+import static org.jocl.CL.CL_DEVICE_EXTENSIONS;
+import static org.jocl.CL.CL_DEVICE_MAX_WORK_GROUP_SIZE;
+import static org.jocl.CL.CL_DEVICE_NAME;
+import static org.jocl.CL.CL_DEVICE_TYPE_ALL;
+import static org.jocl.CL.CL_DEVICE_TYPE_CPU;
+import static org.jocl.CL.CL_DEVICE_TYPE_GPU;
+import static org.jocl.CL.CL_PROGRAM_BUILD_LOG;
+import static org.jocl.CL.CL_SUCCESS;
+import static org.jocl.CL.clBuildProgram;
+import static org.jocl.CL.clCreateBuffer;
+import static org.jocl.CL.clCreateCommandQueue;
+import static org.jocl.CL.clCreateContext;
+import static org.jocl.CL.clCreateKernel;
+import static org.jocl.CL.clCreateProgramWithSource;
+import static org.jocl.CL.clGetDeviceIDs;
+import static org.jocl.CL.clGetDeviceInfo;
+import static org.jocl.CL.clGetPlatformIDs;
+import static org.jocl.CL.clGetProgramBuildInfo;
+import static org.jocl.CL.clReleaseCommandQueue;
+import static org.jocl.CL.clReleaseContext;
+import static org.jocl.CL.clReleaseKernel;
+import static org.jocl.CL.clReleaseMemObject;
+import static org.jocl.CL.clReleaseProgram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_context;
+import org.jocl.cl_context_properties;
+import org.jocl.cl_device_id;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+import org.jocl.cl_platform_id;
+import org.jocl.cl_program;
+
+/**
+ * This class holds the OpenCL context and command queue of one device, and caches the programs
+ * and kernels built for it by source. Runtimes are created once per device type and shared by
+ * all the CL classes.
+ *
+ * The command queue may be used from several threads. A cached kernel is shared as well, so a
+ * caller must hold the kernel's monitor from the first clSetKernelArg to the enqueue of the kernel.
+ * @author xiaog
+ *
+ */
+
+public class CL_Runtime {
+
+	// One runtime per requested device type
+	private static final Map<Long, CL_Runtime> _runtimes = new HashMap<Long, CL_Runtime>();
+
+	private final cl_platform_id _platform;
+	private final cl_device_id _device;
+	private final cl_context _context;
+	private final cl_command_queue _commandQueue;
+	private final String _deviceName;
+	private final long _maxWorkGroupSize;
+	private final boolean _double; // the device supports cl_khr_fp64
+	private final ConcurrentHashMap<String, cl_program> _programs = new ConcurrentHashMap<String, cl_program>();
+	private final ConcurrentHashMap<String, cl_kernel> _kernels = new ConcurrentHashMap<String, cl_kernel>();
+
+	private CL_Runtime(cl_platform_id platform, cl_device_id device) {
+		this._platform = platform;
+		this._device = device;
+
+		// Initialize the context properties
+		cl_context_properties contextProperties = new cl_context_properties();
+		contextProperties.addProperty( CL_CONTEXT_PLATFORM, platform );
+
+		// Create a context for the selected device
+		this._context = clCreateContext(
+				contextProperties, 1, new cl_device_id[]{ device },
+				null, null, null );
+
+		// Create a command-queue for the selected device
+		@SuppressWarnings( "deprecation" )
+		cl_command_queue commandQueue =
+				clCreateCommandQueue( this._context, device, 0, null );
+		this._commandQueue = commandQueue;
+
+		byte[] name = new byte[256];
+		long[] size = new long[1];
+		clGetDeviceInfo( device, CL_DEVICE_NAME, name.length, Pointer.to( name ), size );
+		this._deviceName = new String( name, 0, (int) Math.max( size[0] - 1, 0 ) );
+
+		long[] workGroupSize = new long[1];
+		clGetDeviceInfo( device, CL_DEVICE_MAX_WORK_GROUP_SIZE, Sizeof.size_t, Pointer.to( workGroupSize ), null );
+		this._maxWorkGroupSize = workGroupSize[0];
+
+		long[] extensionsSize = new long[1];
+		clGetDeviceInfo( device, CL_DEVICE_EXTENSIONS, 0, null, extensionsSize );
+		byte[] extensions = new byte[ (int) extensionsSize[0] ];
+		clGetDeviceInfo( device, CL_DEVICE_EXTENSIONS, extensions.length, Pointer.to( extensions ), null );
+		this._double = new String( extensions ).contains( "cl_khr_fp64" );
+	}
+
+	/**
+	 * The default runtime uses a GPU when there is one, and falls back to a CPU device
+	 * (e.g. POCL) or any other OpenCL device otherwise.
+	 * @return the shared runtime
+	 */
+	public static synchronized CL_Runtime getDefault() {
+		long[] deviceTypes = { CL_DEVICE_TYPE_GPU, CL_DEVICE_TYPE_CPU, CL_DEVICE_TYPE_ALL };
+		for ( long deviceType : deviceTypes ) {
+			CL_Runtime runtime = findRuntime( deviceType );
+			if ( runtime != null ) {
+				return runtime;
+			}
+		}
+		throw new IllegalStateException( "No OpenCL device is available" );
+	}
+
+	/**
+	 *
+	 * @param deviceType one of the CL_DEVICE_TYPE constants
+	 * @return the shared runtime for the first device of this type
+	 */
+	public static synchronized CL_Runtime getRuntime( long deviceType ) {
+		CL_Runtime runtime = findRuntime( deviceType );
+		if ( runtime == null ) {
+			throw new IllegalStateException( "No OpenCL device of type " + deviceType + " is available" );
+		}
+		return runtime;
+	}
+
+	// Look up or create the runtime of a device type, null when there is no such device
+	private static CL_Runtime findRuntime( long deviceType ) {
+		CL_Runtime runtime = _runtimes.get( deviceType );
+		if ( runtime != null ) {
+			return runtime;
+		}
+
+		int[] numPlatforms = new int[1];
+		if ( clGetPlatformIDs( 0, null, numPlatforms ) != CL_SUCCESS || numPlatforms[0] == 0 ) {
+			return null;
+		}
+		cl_platform_id[] platforms = new cl_platform_id[ numPlatforms[0] ];
+		clGetPlatformIDs( platforms.length, platforms, null );
+
+		for ( cl_platform_id platform : platforms ) {
+			int[] numDevices = new int[1];
+			if ( clGetDeviceIDs( platform, deviceType, 0, null, numDevices ) != CL_SUCCESS || numDevices[0] == 0 ) {
+				continue;
+			}
+			cl_device_id[] devices = new cl_device_id[1];
+			clGetDeviceIDs( platform, deviceType, 1, devices, null );
+			runtime = new CL_Runtime( platform, devices[0] );
+			_runtimes.put( deviceType, runtime );
+			return runtime;
+		}
+		return null;
+	}
+
+	/**
+	 * Build the program once and keep it for the next callers
+	 * @param source the OpenCL C source
+	 * @return the built program
+	 */
+	public cl_program getProgram( String source ) {
+		cl_program program = this._programs.get( source );
+		if ( program != null ) {
+			return program;
+		}
+		synchronized ( this._programs ) {
+			program = this._programs.get( source );
+			if ( program == null ) {
+				// Create the program from the source code
+				program = clCreateProgramWithSource( this._context,
+						1, new String[]{ source }, null, null );
+
+				// Build the program
+				if ( clBuildProgram( program, 0, null, null, null, null ) != CL_SUCCESS ) {
+					String log = getBuildLog( program );
+					clReleaseProgram( program );
+					throw new IllegalStateException( "Failed to build the OpenCL program:\n" + log );
+				}
+				this._programs.put( source, program );
+			}
+			return program;
+		}
+	}
+
+	/**
+	 *
+	 * @param source the OpenCL C source
+	 * @param name the kernel function in the source
+	 * @return the cached kernel
+	 */
+	public cl_kernel getKernel( String source, String name ) {
+		String key = name + "\n" + source;
+		cl_kernel kernel = this._kernels.get( key );
+		if ( kernel != null ) {
+			return kernel;
+		}
+		synchronized ( this._kernels ) {
+			kernel = this._kernels.get( key );
+			if ( kernel == null ) {
+				kernel = clCreateKernel( getProgram( source ), name, null );
+				this._kernels.put( key, kernel );
+			}
+			return kernel;
+		}
+	}
+
+	public cl_mem createBuffer( long flags, long size, Pointer host ) {
+		return clCreateBuffer( this._context, flags, size, host, null );
+	}
+
+	// Release device buffers that are no longer needed
+	public void release( cl_mem... memObjects ) {
+		for ( cl_mem memObject : memObjects ) {
+			if ( memObject != null ) {
+				clReleaseMemObject( memObject );
+			}
+		}
+	}
+
+	/**
+	 * Release the kernels, programs, queue and context of this runtime. The next call of
+	 * getDefault or getRuntime creates a new runtime.
+	 */
+	public void close() {
+		synchronized ( CL_Runtime.class ) {
+			_runtimes.values().removeIf( runtime -> runtime == this );
+		}
+		for ( cl_kernel kernel : this._kernels.values() ) {
+			clReleaseKernel( kernel );
+		}
+		this._kernels.clear();
+		for ( cl_program program : this._programs.values() ) {
+			clReleaseProgram( program );
+		}
+		this._programs.clear();
+		clReleaseCommandQueue( this._commandQueue );
+		clReleaseContext( this._context );
+	}
+
+	private String getBuildLog( cl_program program ) {
+		long[] size = new long[1];
+		clGetProgramBuildInfo( program, this._device, CL_PROGRAM_BUILD_LOG, 0, null, size );
+		byte[] log = new byte[ (int) size[0] ];
+		clGetProgramBuildInfo( program, this._device, CL_PROGRAM_BUILD_LOG, log.length, Pointer.to( log ), null );
+		return new String( log, 0, Math.max( log.length - 1, 0 ) );
+	}
+
+	// Getters
+	public cl_platform_id getPlatform() {
+		return this._platform;
+	}
+
+	public cl_device_id getDevice() {
+		return this._device;
+	}
+
+	public cl_context getContext() {
+		return this._context;
+	}
+
+	public cl_command_queue getCommandQueue() {
+		return this._commandQueue;
+	}
+
+	public String getDeviceName() {
+		return this._deviceName;
+	}
+
+	public long getMaxWorkGroupSize() {
+		return this._maxWorkGroupSize;
+	}
+
+	// Whether kernels may use double, see CL_FusedPricing
+	public boolean supportsDouble() {
+		return this._double;
+	}
+
+}
@@ -1,68 +1,136 @@
-package MonteCarlo;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class CallPayOut implements PayOut{
-	protected double _StrikePrice; 
-	protected String _type; // Define the type of options "Asian" or "European"
-	
-	/* constructors */
-	public CallPayOut() {
-		
-	}
-	
-	public CallPayOut(double StrikePrice, String type) {
-		this._StrikePrice = StrikePrice;
-		this._type = type;
-	}
-	
-	// Modifiers
-	public void setCallType(String type) {
-		this._type = type;
-	}
-	
-	public void setCallStrike(double StrikePrice) {
-		this._StrikePrice = StrikePrice;
-	}
-	
-	// Selecters
-	public String getCallType() {
-		return this._type;
-	}
-	
-	public double getCallStrike() {
-		return this._StrikePrice;
-	}
-	
-	public void ToString() {
-		StdOut.printf("This call option is of type %s and the strike is %d.\n", this._type, this._StrikePrice);
-	}
-	
-	@Override
-	public double getPayout( StockPath path ) {
-		// Obtain the price list
-		ArrayList<pairPrice<Integer, Double>> pricelist =  path.getPrices();
-		if ( this._type.equals( "Asian" ) ){
-			// For Asian option, we compute the average less the strike price
-			double average = pricelist.get(0).getPrice();
-			for( int i_1 = 1; i_1 < pricelist.size(); ++ i_1 ) {
-				average = ( i_1 * average + pricelist.get( i_1 ).getPrice() )/( i_1 + 1 );
-			}
-			
-			return Math.max( average - this._StrikePrice, 0.0 );
-		} else if ( this._type.equals( "European" ) ) {
-			double endPrice = pricelist.get( pricelist.size()-1 ).getPrice();
-			// to guarantee any number returned is greater or equal to zero
-			return Math.max( endPrice - this._StrikePrice, 0 );
-			
-		} else {
-			StdOut.printf( "The type of the options is not included.\n" );
-			return 0.0;
-		}
-
-	}
-
-}
-
-
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CallPayOut implements PayOut{
+	// Payout types resolved from the type name
+	public static final int TYPE_UNKNOWN = -1;
+	public static final int TYPE_EUROPEAN = 0;
+	public static final int TYPE_ASIAN = 1;
+	
+	protected double _StrikePrice; 
+	protected String _type; // Define the type of options "Asian" or "European"
+	protected int _payoutType = TYPE_UNKNOWN; // _type resolved once, so no string compare per path
+	
+	/* constructors */
+	public CallPayOut() {
+		
+	}
+	
+	public CallPayOut(double StrikePrice, String type) {
+		this._StrikePrice = StrikePrice;
+		setCallType(type);
+	}
+	
+	// Modifiers
+	public void setCallType(String type) {
+		this._type = type;
+		if ( "Asian".equals( type ) ) {
+			this._payoutType = TYPE_ASIAN;
+		} else if ( "European".equals( type ) ) {
+			this._payoutType = TYPE_EUROPEAN;
+		} else {
+			this._payoutType = TYPE_UNKNOWN;
+		}
+	}
+	
+	public void setCallStrike(double StrikePrice) {
+		this._StrikePrice = StrikePrice;
+	}
+	
+	// Selecters
+	public String getCallType() {
+		return this._type;
+	}
+	
+	public int getPayoutType() {
+		return this._payoutType;
+	}
+	
+	public double getCallStrike() {
+		return this._StrikePrice;
+	}
+	
+	public void ToString() {
+		StdOut.printf("This call option is of type %s and the strike is %d.\n", this._type, this._StrikePrice);
+	}
+	
+	@Override
+	public double getPayout( StockPath path ) {
+		// Work on the primitive path instead of the pairPrice list
+		return getPayout( path.getPricePath() );
+	}
+	
+	@Override
+	public double getPayout( PricePath path ) {
+		double[] prices = path.getPriceArray();
+		int length = path.getLength();
+		if ( this._payoutType == TYPE_ASIAN ){
+			// For Asian option, we compute the average less the strike price
+			double sum = 0.0;
+			for( int i_1 = 0; i_1 <= length; ++ i_1 ) {
+				sum += prices[ i_1 ];
+			}
+			double average = sum / ( length + 1 );
+			
+			return Math.max( average - this._StrikePrice, 0.0 );
+		} else if ( this._payoutType == TYPE_EUROPEAN ) {
+			double endPrice = prices[ length ];
+			// to guarantee any number returned is greater or equal to zero
+			return Math.max( endPrice - this._StrikePrice, 0 );
+			
+		} else {
+			StdOut.printf( "The type of the options is not included.\n" );
+			return 0.0;
+		}
+
+	}
+
+	@Override
+	public double getPayout( PathStatistics statistics ) {
+		if ( this._payoutType == TYPE_ASIAN ) {
+			return Math.max( statistics.getAverage() - this._StrikePrice, 0.0 );
+		} else if ( this._payoutType == TYPE_EUROPEAN ) {
+			return Math.max( statistics.getTerminalPrice() - this._StrikePrice, 0.0 );
+		} else {
+			StdOut.printf( "The type of the options is not included.\n" );
+			return 0.0;
+		}
+	}
+	
+	@Override
+	public void getPayouts( PathBlock block, double[] payouts ) {
+		double[] prices = block.getPriceArray();
+		int paths = block.getPathCount();
+		int length = block.getLength();
+		if ( this._payoutType == TYPE_ASIAN ) {
+			// Accumulate one time step of every path at a time
+			for( int p = 0; p < paths; ++ p ) {
+				payouts[ p ] = 0.0;
+			}
+			for( int i_1 = 0, index = 0; i_1 <= length; ++ i_1, index += paths ) {
+				for( int p = 0; p < paths; ++ p ) {
+					payouts[ p ] += prices[ index + p ];
+				}
+			}
+			double inverse = 1.0 / ( length + 1 );
+			for( int p = 0; p < paths; ++ p ) {
+				payouts[ p ] = Math.max( payouts[ p ] * inverse - this._StrikePrice, 0.0 );
+			}
+		} else if ( this._payoutType == TYPE_EUROPEAN ) {
+			int index = length * paths;
+			for( int p = 0; p < paths; ++ p ) {
+				payouts[ p ] = Math.max( prices[ index + p ] - this._StrikePrice, 0.0 );
+			}
+		} else {
+			StdOut.printf( "The type of the options is not included.\n" );
+			for( int p = 0; p < paths; ++ p ) {
+				payouts[ p ] = 0.0;
+			}
+		}
+	}
+
+}
+
+
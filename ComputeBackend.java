@@ -0,0 +1,50 @@
+package MonteCarlo;
+
+/**
+ * A device that prices options by Monte Carlo simulation. The implementations are discovered
+ * with java.util.ServiceLoader from META-INF/services/MonteCarlo.ComputeBackend and chosen by
+ * ComputeBackends. isAvailable must be cheap and must not load native libraries, so that the
+ * backends not chosen cost nothing at start up.
+ * @author xiaog
+ *
+ */
+
+public interface ComputeBackend {
+
+	// Short name used to choose the backend by the system property MonteCarlo.backend
+	public String getName();
+
+	// Whether the backend can run on this machine, without loading native libraries
+	public boolean isAvailable();
+
+	/**
+	 * Whether the backend takes part in the calibration run of ComputeBackends, which prices on
+	 * every candidate. A backend whose first pricing loads native libraries or compiles kernels
+	 * should only return true when a probe, made without loading them, finds a device that can
+	 * beat the CPU, so that the CPU path starts fast elsewhere
+	 * @return true by default
+	 */
+	public default boolean isWorthCalibrating() {
+		return true;
+	}
+
+	/**
+	 * Price until the error is within the target
+	 * @param option the option, "European" or "Asian"
+	 * @param length number of time steps
+	 * @param probability confidence level of the error
+	 * @param error target error of the price
+	 * @return the discounted option price
+	 */
+	public double price(Option<?,?> option, int length, double probability, double error);
+
+	/**
+	 * Price with a fixed number of paths, used to compare the speed of the backends
+	 * @param option the option, "European" or "Asian"
+	 * @param length number of time steps
+	 * @param paths number of paths, the backend may round it up
+	 * @return the number of paths actually priced, at least paths
+	 */
+	public long pricePaths(Option<?,?> option, int length, int paths);
+
+}
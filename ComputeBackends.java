@@ -0,0 +1,145 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+/**
+ * This class chooses the compute backend. The backends are discovered with ServiceLoader and
+ * the unavailable ones are dropped. The system property MonteCarlo.backend picks a backend by
+ * name. Otherwise, if only one backend is left it is taken as it is; if there are several, the
+ * ones that are not worth calibrating are dropped, e.g. OpenCL without a GPU driver, so that their
+ * native libraries are never loaded, and each remaining one prices a short calibration run; the
+ * one with the shortest time per path wins, a backend that fails being skipped. The calibration
+ * prices an Asian call, so every backend walks all the time steps of every path, and the time is
+ * divided by the paths the backend actually ran. The choice is made once and kept.
+ * @author xiaog
+ *
+ */
+
+public class ComputeBackends {
+
+	public static final String PROPERTY = "MonteCarlo.backend";
+	private static final int CALIBRATION_PATHS = 1 << 16;
+	private static final int CALIBRATION_LENGTH = 252;
+
+	private static ComputeBackend _default;
+
+	private ComputeBackends() {}
+
+	/**
+	 *
+	 * @return the backend chosen for this machine
+	 */
+	public static synchronized ComputeBackend getDefault() {
+		if (_default == null) {
+			_default = select(getAvailable());
+		}
+		return _default;
+	}
+
+	/**
+	 *
+	 * @return the registered backends that can run on this machine
+	 */
+	public static List<ComputeBackend> getAvailable() {
+		List<ComputeBackend> backends = new ArrayList<ComputeBackend>();
+		Iterator<ComputeBackend> iterator = ServiceLoader.load(ComputeBackend.class).iterator();
+		while (true) {
+			ComputeBackend backend;
+			try {
+				if (!iterator.hasNext()) {
+					break;
+				}
+				backend = iterator.next();
+			} catch (ServiceConfigurationError e) {
+				// a provider whose classes are missing, e.g. OpenCL without JOCL
+				continue;
+			}
+			if (backend.isAvailable()) {
+				backends.add(backend);
+			}
+		}
+		return backends;
+	}
+
+	/**
+	 * Choose among the given backends
+	 * @param backends the available backends
+	 * @return the one named by the system property, the only one, or the fastest one
+	 */
+	public static ComputeBackend select(List<ComputeBackend> backends) {
+		String name = System.getProperty(PROPERTY);
+		if (name != null) {
+			for (ComputeBackend backend : backends) {
+				if (backend.getName().equals(name)) {
+					return backend;
+				}
+			}
+			throw new IllegalStateException("The compute backend " + name + " is not available");
+		}
+		if (backends.isEmpty()) {
+			// the Java backend does not need a registration to run
+			return new JavaComputeBackend();
+		}
+		if (backends.size() == 1) {
+			return backends.get(0);
+		}
+		List<ComputeBackend> candidates = new ArrayList<ComputeBackend>();
+		for (ComputeBackend backend : backends) {
+			if (backend.isWorthCalibrating()) {
+				candidates.add(backend);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return new JavaComputeBackend();
+		}
+		if (candidates.size() == 1) {
+			return candidates.get(0);
+		}
+
+		// the European call has a closed form terminal step on some backends, the Asian one does not
+		Option<Integer, Integer> option = new Option<Integer, Integer>("Calibration","Asian",0.0001,152.35,0.01,164);
+		ComputeBackend fastest = null;
+		double fastestTime = Double.MAX_VALUE;
+		for (ComputeBackend backend : candidates) {
+			try {
+				// the first run includes compilation and device set up, the second one is timed
+				backend.pricePaths(option, CALIBRATION_LENGTH, CALIBRATION_PATHS);
+				long start = System.nanoTime();
+				long paths = backend.pricePaths(option, CALIBRATION_LENGTH, CALIBRATION_PATHS);
+				double time = (double) (System.nanoTime() - start) / paths;
+				if (time < fastestTime) {
+					fastestTime = time;
+					fastest = backend;
+				}
+			} catch (RuntimeException e) {
+				StdOut.println("Compute backend " + backend.getName() + " skipped: " + e.getMessage());
+			} catch (LinkageError e) {
+				StdOut.println("Compute backend " + backend.getName() + " skipped: " + e);
+			}
+		}
+		return fastest != null ? fastest : new JavaComputeBackend();
+	}
+
+	public static void main(String[] args) {
+
+		// Define two objects
+		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		// p-value, error and length
+		double probability = 0.96;
+		double error = 0.1;
+		int period = 252;
+		ComputeBackend backend = getDefault();
+		StdOut.println("Compute backend: " + backend.getName());
+		// Simulate European option
+		StdOut.println("Case 1 European Option Price:");
+		backend.price(IBM_eu, period, probability, error/2);
+		// Simulate Asian option
+		StdOut.println("Case 2 Asian Option Price:");
+		backend.price(IBM_as, period, probability, error/2);
+	}
+
+}
@@ -0,0 +1,74 @@
+package MonteCarlo;
+
+/**
+ * This class updates the joint statistics of a payout Y and a control variate X with known mean.
+ * The optimal coefficient beta = cov(X, Y) / var(X) is estimated online, and the estimator
+ * Y - beta * (X - E[X]) has the variance of Y times (1 - corr(X, Y)^2).
+ * @author xiaog
+ *
+ */
+
+public class ControlVariateCollector {
+
+	private long _count;
+	private double _meanY;
+	private double _meanX;
+	private double _m2Y; // sum of squared deviations of Y
+	private double _m2X; // sum of squared deviations of X
+	private double _cXY; // sum of the products of the deviations
+
+	public ControlVariateCollector() {
+	}
+
+	// Add a payout and the value of its control
+	public void update(double payout, double control) {
+		++ this._count;
+		double deltaX = control - this._meanX;
+		double deltaY = payout - this._meanY;
+		this._meanX += deltaX / this._count;
+		this._meanY += deltaY / this._count;
+		this._m2X += deltaX * (control - this._meanX);
+		this._m2Y += deltaY * (payout - this._meanY);
+		this._cXY += deltaX * (payout - this._meanY);
+	}
+
+	// Getters.
+	public long getCount() {
+		return this._count;
+	}
+
+	// Estimated optimal coefficient, zero while the control has no variance
+	public double getBeta() {
+		if (this._m2X == 0.0) {
+			return 0.0;
+		}
+		return this._cXY / this._m2X;
+	}
+
+	/**
+	 *
+	 * @param controlMean the exact expectation of the control
+	 * @return the control variate estimate of the mean payout
+	 */
+	public double getMean(double controlMean) {
+		return this._meanY - getBeta() * (this._meanX - controlMean);
+	}
+
+	// Std of the adjusted payout Y - beta * X, one degree of freedom is used by beta
+	public double getStd() {
+		if (this._count < 3) {
+			return 0.0;
+		}
+		double residual = this._m2Y - getBeta() * this._cXY;
+		return Math.sqrt(Math.max(residual, 0.0) / (this._count - 2));
+	}
+
+	// Std of the payout without the control
+	public double getPayoutStd() {
+		if (this._count < 2) {
+			return 0.0;
+		}
+		return Math.sqrt(this._m2Y / (this._count - 1));
+	}
+
+}
@@ -0,0 +1,62 @@
+package MonteCarlo;
+
+/**
+ * This decorator shifts every normal of the source by a constant drift, which samples the
+ * normals from N(drift, 1) instead of N(0, 1). The likelihood ratio of the last vector with
+ * respect to the original distribution is kept, so a payout multiplied by it is still an
+ * unbiased sample of the original expectation (importance sampling).
+ * @author xiaog
+ *
+ */
+
+public class DriftShiftedRandomVectorGenerator implements RandomVectorGenerator {
+
+	protected RandomVectorGenerator _vectorGenerator; // receive a random vector from other resource
+	protected double _drift;
+	protected double[] _currentVector;
+	protected double _likelihoodRatio = 1.0;
+
+	public DriftShiftedRandomVectorGenerator(RandomVectorGenerator source, double drift) {
+		this._vectorGenerator = source;
+		this._drift = drift;
+	}
+
+	// Modifiers
+	public void setDrift(double drift) {
+		this._drift = drift;
+	}
+
+	// Getters
+	public double getDrift() {
+		return this._drift;
+	}
+
+	public double[] getCurrentVector() {
+		return this._currentVector;
+	}
+
+	/**
+	 * For z = e + drift with e standard normal, the density ratio of N(0, 1) to N(drift, 1)
+	 * over the vector is exp(-drift * sum(e) - n * drift^2 / 2).
+	 * @return the likelihood ratio of the last vector
+	 */
+	public double getLikelihoodRatio() {
+		return this._likelihoodRatio;
+	}
+
+	@Override
+	public double[] getVector() {
+		double[] source = this._vectorGenerator.getVector();
+		if (this._currentVector == null || this._currentVector.length != source.length) {
+			this._currentVector = new double[source.length];
+		}
+		double sum = 0.0;
+		for (int i = 0; i < source.length; ++ i) {
+			sum += source[i];
+			this._currentVector[i] = source[i] + this._drift;
+		}
+		this._likelihoodRatio = Math.exp(-this._drift * sum - source.length * this._drift * this._drift / 2.0);
+		return this._currentVector;
+	}
+
+}
@@ -0,0 +1,75 @@
+package MonteCarlo;
+
+/**
+ * The price of an option and its sensitivities estimated in one simulation, each with the
+ * half width of its confidence interval. Vega is the sensitivity to the daily volatility of
+ * the option.
+ * @author xiaog
+ *
+ */
+
+public class Greeks {
+
+	private double _price;
+	private double _delta;
+	private double _gamma;
+	private double _vega;
+	private double _priceError;
+	private double _deltaError;
+	private double _gammaError;
+	private double _vegaError;
+
+	public Greeks(double price, double delta, double gamma, double vega,
+			double priceError, double deltaError, double gammaError, double vegaError) {
+		this._price = price;
+		this._delta = delta;
+		this._gamma = gamma;
+		this._vega = vega;
+		this._priceError = priceError;
+		this._deltaError = deltaError;
+		this._gammaError = gammaError;
+		this._vegaError = vegaError;
+	}
+
+	// Getters
+	public double getPrice() {
+		return this._price;
+	}
+
+	public double getDelta() {
+		return this._delta;
+	}
+
+	public double getGamma() {
+		return this._gamma;
+	}
+
+	public double getVega() {
+		return this._vega;
+	}
+
+	public double getPriceError() {
+		return this._priceError;
+	}
+
+	public double getDeltaError() {
+		return this._deltaError;
+	}
+
+	public double getGammaError() {
+		return this._gammaError;
+	}
+
+	public double getVegaError() {
+		return this._vegaError;
+	}
+
+	@Override
+	public String toString() {
+		return "price " + this._price + " +/- " + this._priceError
+				+ ", delta " + this._delta + " +/- " + this._deltaError
+				+ ", gamma " + this._gamma + " +/- " + this._gammaError
+				+ ", vega " + this._vega + " +/- " + this._vegaError;
+	}
+
+}
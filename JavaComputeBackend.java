@@ -0,0 +1,48 @@
+package MonteCarlo;
+
+/**
+ * The pure Java backend: ParallelSimulation on every available processor. It is always
+ * available and is the fallback when there is no OpenCL device.
+ * @author xiaog
+ *
+ */
+
+public class JavaComputeBackend implements ComputeBackend {
+
+	private int _threads;
+
+	public JavaComputeBackend() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public JavaComputeBackend(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		this._threads = threads;
+	}
+
+	@Override
+	public String getName() {
+		return "java";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public double price(Option<?,?> option, int length, double probability, double error) {
+		return new ParallelSimulation(option, length, probability, error, this._threads).simulate();
+	}
+
+	@Override
+	public long pricePaths(Option<?,?> option, int length, int paths) {
+		// the probability and error are not used with a fixed number of paths
+		ParallelSimulation simulation = new ParallelSimulation(option, length, 0.95, 1.0, this._threads);
+		simulation.simulatePaths(paths);
+		return simulation.getNumTrial();
+	}
+
+}
@@ -0,0 +1,129 @@
+package MonteCarlo;
+
+import java.util.Random;
+/**
+ * This class generates normal vectors by Latin hypercube sampling. The vectors come in
+ * batches of _samples; within a batch every coordinate takes exactly one value from each of
+ * _samples equally likely intervals of the normal distribution, the intervals being matched
+ * across coordinates by independent random permutations. The additive part of the payout,
+ * which includes the effect of the terminal value, loses most of its variance.
+ *
+ * The vectors of a batch are not independent, so the sample std used by Simulation.simulate()
+ * over-states the error and the variance reduction does not shorten the run. The batches are
+ * independent: Simulation.simulateReplicates starts a batch per replicate and applies the
+ * stopping rule to the batch means. Each vector gives an antithetic pair of paths, so a
+ * replicate of n paths should use batches of n / 2 samples.
+ *
+ * With the Brownian bridge ordering the first coordinate fixes the terminal value, which is
+ * then stratified as well. Without it, the additive part of a payout over many steps is nearly
+ * linear and is already removed by the antithetic paths, so the batches add little.
+ * @author xiaog
+ *
+ */
+
+public class LatinHypercubeRandomVectorGenerator implements ReplicateRandomVectorGenerator {
+
+	private int _length;
+	private int _samples;
+	private int[][] _permutation; // _permutation[d][i] is the interval of coordinate d in vector i of the batch
+	private int _index; // next vector of the batch
+	private Random _random;
+	private BrownianBridge _bridge; // null when the coordinates are the increments themselves
+	private double[] _normals;
+	private double[] _vector;
+
+	public LatinHypercubeRandomVectorGenerator(int length, int samples) {
+		this(length, samples, new Random().nextLong());
+	}
+
+	public LatinHypercubeRandomVectorGenerator(int length, int samples, long seed) {
+		this(length, samples, seed, false);
+	}
+
+	/**
+	 *
+	 * @param length normals per vector
+	 * @param samples vectors per batch
+	 * @param seed of the permutations and of the points in the intervals
+	 * @param bridge true to order the coordinates by a Brownian bridge, like SobolRandomVectorGenerator
+	 */
+	public LatinHypercubeRandomVectorGenerator(int length, int samples, long seed, boolean bridge) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be positive");
+		}
+		if (samples < 1) {
+			throw new IllegalArgumentException("samples must be positive");
+		}
+		this._length = length;
+		this._samples = samples;
+		this._permutation = new int[length][samples];
+		for (int d = 0; d < length; ++ d) {
+			for (int i_1 = 0; i_1 < samples; ++ i_1) {
+				this._permutation[d][i_1] = i_1;
+			}
+		}
+		this._index = samples;
+		this._random = new Random(seed);
+		this._vector = new double[length];
+		if (bridge) {
+			this._bridge = new BrownianBridge(length);
+			this._normals = new double[length];
+		}
+	}
+
+	// Getters
+	@Override
+	public int getLength() {
+		return this._length;
+	}
+
+	public int getSamples() {
+		return this._samples;
+	}
+
+	// Start a new batch on the next call of getVector
+	public void nextBatch() {
+		this._index = this._samples;
+	}
+
+	// A replicate is a new batch
+	@Override
+	public void nextReplicate() {
+		nextBatch();
+	}
+
+	/**
+	 *
+	 * @return the next vector of the current batch
+	 */
+	@Override
+	public double[] getVector() {
+		if (this._index == this._samples) {
+			// new independent permutation of the intervals of every coordinate
+			for (int d = 0; d < this._length; ++ d) {
+				int[] permutation = this._permutation[d];
+				for (int i_1 = this._samples - 1; i_1 > 0; -- i_1) {
+					int j = this._random.nextInt(i_1 + 1);
+					int swap = permutation[i_1];
+					permutation[i_1] = permutation[j];
+					permutation[j] = swap;
+				}
+			}
+			this._index = 0;
+		}
+		double[] normals = this._bridge != null ? this._normals : this._vector;
+		for (int d = 0; d < this._length; ++ d) {
+			double u = this._random.nextDouble();
+			while (u == 0.0) {
+				u = this._random.nextDouble();
+			}
+			normals[d] = NormalDistribution.inverseCdf((this._permutation[d][this._index] + u) / this._samples);
+		}
+		if (this._bridge != null) {
+			this._bridge.transform(this._normals, this._vector);
+		}
+		++ this._index;
+		return this._vector;
+	}
+
+}
@@ -0,0 +1,229 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * This class prices the option by multilevel Monte Carlo. Level 0 simulates the path on the
+ * coarsest grid, level l > 0 simulates the difference of the payouts on grid l and on the
+ * next coarser grid l - 1, both driven by the same Brownian increments. The finest grid is
+ * the grid of _length daily steps, so the sum of the level means is an unbiased estimate of
+ * the plain Monte Carlo price, while most paths are simulated on cheap coarse grids.
+ *
+ * Each grid divides the next finer one by its smallest prime factor, e.g. 1, 7, 21, 63, 126, 252.
+ * After a pilot run on every level, the number of paths per level follows the optimal allocation
+ * N_l proportional to sqrt(V_l / C_l), V_l being the variance and C_l the cost of a sample of
+ * level l, and the simulation stops when the error of the sum is within the target.
+ * @author xiaog
+ *
+ */
+
+public class MultilevelSimulation extends Simulation {
+
+	protected int _pilotSize = 1000; // paths simulated on every level before the allocation is estimated
+	protected int[] _steps; // time steps of the grid of every level, coarsest first
+	protected long[] _samples; // paths simulated on every level in the last run
+
+	// Constructor
+	public MultilevelSimulation(Option<?,?> option, int length, double probability, double error) {
+		super(option, length, probability, error);
+		this._steps = levelSteps(length);
+		this._samples = new long[this._steps.length];
+	}
+
+	// Modifiers
+	public void setPilotSize(int pilotSize) {
+		if (pilotSize < 2) {
+			throw new IllegalArgumentException("pilotSize must be at least 2");
+		}
+		this._pilotSize = pilotSize;
+	}
+
+	// Getters
+	public int getPilotSize() {
+		return this._pilotSize;
+	}
+
+	public int getLevels() {
+		return this._steps.length;
+	}
+
+	public int[] getLevelSteps() {
+		return this._steps.clone();
+	}
+
+	public long[] getLevelSamples() {
+		return this._samples.clone();
+	}
+
+	public long getNumTrial() {
+		return this._num_trial;
+	}
+
+	// Simulated time steps of the last run, the fine and coarse steps of every sample
+	public long getCost() {
+		long cost = 0;
+		for (int l = 0; l < this._steps.length; ++ l) {
+			cost += this._samples[l] * cost(l);
+		}
+		return cost;
+	}
+
+	@Override
+	public double simulate() {
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		int levels = this._steps.length;
+
+		// the levels draw their own normals, the path object only fills paths from them
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian();
+		BrownianPath.setAttribute(this._option);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PricePath finePath = new PricePath(this._length);
+		PricePath coarsePath = new PricePath(this._length);
+		double[] coarse = new double[this._length];
+
+		List<RandomVectorGenerator> normpaths = new ArrayList<RandomVectorGenerator>();
+		StatsCollector[] collectors = new StatsCollector[levels];
+		long[] target = new long[levels];
+		for (int l = 0; l < levels; ++ l) {
+			normpaths.add(new Xoshiro256RandomVectorGenerator(this._steps[l]));
+			collectors[l] = new StatsCollector();
+			target[l] = this._pilotSize;
+		}
+
+		double error = Double.MAX_VALUE;
+		while (true) {
+			// bring every level up to its target number of paths
+			for (int l = 0; l < levels; ++ l) {
+				RandomVectorGenerator normpath = normpaths.get(l);
+				for (long i_1 = collectors[l].getCount(); i_1 < target[l]; ++ i_1) {
+					collectors[l].update(levelSample(l, normpath.getVector(), BrownianPath, payout,
+							finePath, coarsePath, coarse));
+				}
+			}
+
+			// variance of the sum of the level means
+			double variance = 0.0;
+			for (int l = 0; l < levels; ++ l) {
+				variance += collectors[l].getVariance() / collectors[l].getCount();
+			}
+			error = criteria * Math.sqrt(variance);
+			if (error <= this._error && error != 0.0) {
+				break;
+			}
+
+			// optimal allocation N_l = (criteria / error)^2 * sqrt(V_l / C_l) * sum_k sqrt(V_k C_k)
+			double sum = 0.0;
+			for (int l = 0; l < levels; ++ l) {
+				sum += Math.sqrt(collectors[l].getVariance() * cost(l));
+			}
+			double scale = criteria * criteria / (this._error * this._error) * sum;
+			boolean grown = false;
+			for (int l = 0; l < levels; ++ l) {
+				long optimal = (long) Math.ceil(scale * Math.sqrt(collectors[l].getVariance() / cost(l)));
+				// paths already simulated are kept
+				target[l] = Math.max(optimal, collectors[l].getCount());
+				grown |= target[l] > collectors[l].getCount();
+			}
+			if (!grown) {
+				// the variance estimates lag behind the allocation, double the level with the largest share
+				int worst = 0;
+				double share = -1.0;
+				for (int l = 0; l < levels; ++ l) {
+					double levelShare = collectors[l].getVariance() / collectors[l].getCount();
+					if (levelShare > share) {
+						share = levelShare;
+						worst = l;
+					}
+				}
+				target[worst] = 2 * collectors[worst].getCount();
+			}
+		}
+
+		double mean = 0.0;
+		this._num_trial = 0;
+		for (int l = 0; l < levels; ++ l) {
+			mean += collectors[l].getMean();
+			this._samples[l] = collectors[l].getCount();
+			this._num_trial += this._samples[l];
+		}
+		double price = mean * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+
+	/**
+	 * One sample of level l: the payout on grid l minus the payout on grid l - 1, the normals of
+	 * a coarse step being the scaled sum of the normals of the fine steps it covers
+	 * @param l the level
+	 * @param fine standard normal increments of the grid of level l
+	 * @return the sample of the level
+	 */
+	private double levelSample(int l, double[] fine, StockPathExponentialBrownian BrownianPath, CallPayOut payout,
+			PricePath finePath, PricePath coarsePath, double[] coarse) {
+		int steps = this._steps[l];
+		BrownianPath.fillPricePath(fine, steps, (double) this._length / steps, finePath);
+		double sample = payout.getPayout(finePath);
+		if (l > 0) {
+			int coarseSteps = this._steps[l - 1];
+			int ratio = steps / coarseSteps;
+			double norm = 1.0 / Math.sqrt(ratio);
+			for (int i_1 = 0; i_1 < coarseSteps; ++ i_1) {
+				double sum = 0.0;
+				for (int i_2 = i_1 * ratio; i_2 < (i_1 + 1) * ratio; ++ i_2) {
+					sum += fine[i_2];
+				}
+				coarse[i_1] = sum * norm;
+			}
+			BrownianPath.fillPricePath(coarse, coarseSteps, (double) this._length / coarseSteps, coarsePath);
+			sample -= payout.getPayout(coarsePath);
+		}
+		return sample;
+	}
+
+	// Time steps simulated by one sample of level l
+	private long cost(int l) {
+		return l == 0 ? this._steps[0] : this._steps[l] + this._steps[l - 1];
+	}
+
+	// Grids from one step up to length steps, each one divides the next by its smallest prime factor
+	private static int[] levelSteps(int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be positive");
+		}
+		List<Integer> steps = new ArrayList<Integer>();
+		int current = length;
+		steps.add(0, current);
+		while (current > 1) {
+			int factor = 2;
+			while (current % factor != 0) {
+				++ factor;
+			}
+			current /= factor;
+			steps.add(0, current);
+		}
+		int[] result = new int[steps.size()];
+		for (int i_1 = 0; i_1 < result.length; ++ i_1) {
+			result[i_1] = steps.get(i_1);
+		}
+		return result;
+	}
+
+	public static void main(String[] args) {
+
+		// Define the Asian option
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		// p-value, error and length
+		double probability = 0.96;
+		double error = 0.1;
+		int period = 252;
+		// Simulate Asian option
+		StdOut.println("Asian Option Price by multilevel Monte Carlo:");
+		MultilevelSimulation IBM_asian = new MultilevelSimulation(IBM_as, period, probability, error/2);
+		IBM_asian.simulate();
+		StdOut.println("Paths per level: " + Arrays.toString(IBM_asian.getLevelSamples()));
+		StdOut.println("Simulated steps: " + IBM_asian.getCost());
+	}
+
+}
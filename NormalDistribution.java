@@ -0,0 +1,101 @@
+package MonteCarlo;
+
+/**
+ * Functions of the standard normal distribution used by the samplers.
+ * @author xiaog
+ *
+ */
+
+public class NormalDistribution {
+
+	// Coefficients of Acklam's rational approximation of the inverse cumulative distribution
+	private static final double[] A = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+			1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+	private static final double[] B = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+			6.680131188771972e+01, -1.328068155288572e+01 };
+	private static final double[] C = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+			-2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+	private static final double[] D = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+			3.754408661907416e+00 };
+	private static final double P_LOW = 0.02425;
+
+	private NormalDistribution() {}
+
+	/**
+	 *
+	 * @param x
+	 * @return the standard normal density at x
+	 */
+	public static double pdf(double x) {
+		return Math.exp(-x * x / 2.0) / Math.sqrt(2.0 * Math.PI);
+	}
+
+	/**
+	 * Hart's rational approximation, accurate to double precision
+	 * @param x
+	 * @return the standard normal cumulative distribution at x
+	 */
+	public static double cdf(double x) {
+		double xAbs = Math.abs(x);
+		double c;
+		if (xAbs > 37.0) {
+			c = 0.0;
+		} else {
+			double exponential = Math.exp(-xAbs * xAbs / 2.0);
+			if (xAbs < 7.07106781186547) {
+				double build = 3.52624965998911e-02 * xAbs + 0.700383064443688;
+				build = build * xAbs + 6.37396220353165;
+				build = build * xAbs + 33.912866078383;
+				build = build * xAbs + 112.079291497871;
+				build = build * xAbs + 221.213596169931;
+				build = build * xAbs + 220.206867912376;
+				c = exponential * build;
+				build = 8.83883476483184e-02 * xAbs + 1.75566716318264;
+				build = build * xAbs + 16.064177579207;
+				build = build * xAbs + 86.7807322029461;
+				build = build * xAbs + 296.564248779674;
+				build = build * xAbs + 637.333633378831;
+				build = build * xAbs + 793.826512519948;
+				build = build * xAbs + 440.413735824752;
+				c = c / build;
+			} else {
+				double build = xAbs + 0.65;
+				build = xAbs + 4.0 / build;
+				build = xAbs + 3.0 / build;
+				build = xAbs + 2.0 / build;
+				build = xAbs + 1.0 / build;
+				c = exponential / build / 2.506628274631;
+			}
+		}
+		return x > 0 ? 1.0 - c : c;
+	}
+
+	/**
+	 *
+	 * @param p a probability in (0, 1)
+	 * @return the quantile of the standard normal distribution, relative error below 1.2e-9
+	 */
+	public static double inverseCdf(double p) {
+		if (p <= 0.0 || p >= 1.0) {
+			throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+		}
+		if (p < P_LOW) {
+			// lower tail
+			double q = Math.sqrt(-2.0 * Math.log(p));
+			return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5]) /
+					((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1.0);
+		} else if (p <= 1.0 - P_LOW) {
+			// central region
+			double q = p - 0.5;
+			double r = q * q;
+			return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q /
+					(((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1.0);
+		} else {
+			// upper tail
+			double q = Math.sqrt(-2.0 * Math.log(1.0 - p));
+			return -(((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5]) /
+					((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1.0);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package MonteCarlo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+/**
+ * The OpenCL backend: the fused kernel of Simulation_CL on the default device of CL_Runtime,
+ * a GPU when there is one, else a CPU or any other device.
+ *
+ * isAvailable only checks that JOCL is on the class path, without initializing it, and that an
+ * OpenCL driver is installed; the native libraries of JOCL are loaded by the first pricing.
+ * isWorthCalibrating reads the installed drivers the same way: on Linux the backend is only
+ * timed against the Java one when a vendor file names a GPU driver, a CPU runtime such as pocl
+ * rarely beating ParallelSimulation; macOS and Windows cannot be told apart without the native
+ * libraries and always calibrate.
+ * @author xiaog
+ *
+ */
+
+public class OpenCLComputeBackend implements ComputeBackend {
+
+	// Parts of the library names of the GPU drivers in the vendor files of the ICD loader
+	private static final String[] GPU_LIBRARIES = { "nvidia", "amdocl", "igdrcl", "mesaopencl", "rusticl", "mali" };
+
+	@Override
+	public String getName() {
+		return "opencl";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		try {
+			// false: the static initializer of CL loads the native libraries
+			Class.forName("org.jocl.CL", false, OpenCLComputeBackend.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+		return hasDriver();
+	}
+
+	@Override
+	public boolean isWorthCalibrating() {
+		String os = System.getProperty("os.name", "").toLowerCase();
+		if (os.contains("mac") || os.contains("windows")) {
+			return true;
+		}
+		for (File file : vendorFiles()) {
+			String library;
+			try {
+				library = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).toLowerCase();
+			} catch (IOException e) {
+				continue;
+			}
+			for (String gpu : GPU_LIBRARIES) {
+				if (library.contains(gpu)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public double price(Option<?,?> option, int length, double probability, double error) {
+		return new Simulation_CL(option, length, probability, error).simulateFused();
+	}
+
+	@Override
+	public long pricePaths(Option<?,?> option, int length, int paths) {
+		// the probability and error are not used with a fixed number of paths, which are
+		// rounded up to whole batches of the fused kernel
+		Simulation_CL simulation = new Simulation_CL(option, length, 0.95, 1.0);
+		simulation.simulatePaths(paths);
+		return simulation.getNumTrial();
+	}
+
+	// An installable client driver is registered for the platform of this machine
+	private static boolean hasDriver() {
+		String os = System.getProperty("os.name", "").toLowerCase();
+		if (os.contains("mac")) {
+			return new File("/System/Library/Frameworks/OpenCL.framework").exists();
+		}
+		if (os.contains("windows")) {
+			String root = System.getenv("SystemRoot");
+			return root != null && new File(root, "System32" + File.separator + "OpenCL.dll").exists();
+		}
+		return vendorFiles().length > 0;
+	}
+
+	// Linux and the other unixes use the ICD loader, whose vendor files name the driver libraries
+	private static File[] vendorFiles() {
+		String vendors = System.getenv("OCL_ICD_VENDORS");
+		File directory = new File(vendors != null ? vendors : "/etc/OpenCL/vendors");
+		if (directory.isFile()) {
+			return new File[] { directory };
+		}
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".icd"));
+		return files != null ? files : new File[0];
+	}
+
+}
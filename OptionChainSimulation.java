@@ -0,0 +1,157 @@
+package MonteCarlo;
+
+import java.util.Arrays;
+/**
+ * This class prices a chain of calls on one underlying, every pair of strike and maturity,
+ * from one set of paths. The paths run to the longest maturity and are streamed through a
+ * PathStatistics; when a path reaches a maturity the payout of every strike is read from the
+ * statistics of the path so far. All contracts share the same random numbers, so the price
+ * differences across the chain are much less noisy than with one Simulation per contract.
+ *
+ * The maturities are numbers of days, the payout type is the one of the option, whose strike
+ * is ignored. The simulation stops when the error of every contract is within the target.
+ * @author xiaog
+ *
+ */
+
+public class OptionChainSimulation extends Simulation {
+
+	protected double[] _strikes;
+	protected int[] _maturities; // increasing numbers of days
+	protected double[][] _prices; // _prices[m][k] of maturity m and strike k after the last run
+	protected double[][] _errors; // confidence half width of every price
+
+	// Constructor receives the underlying and the chain
+	public OptionChainSimulation(Option<?,?> option, double[] strikes, int[] maturities, double probability, double error) {
+		super(option, lastMaturity(maturities), probability, error);
+		if (strikes.length == 0) {
+			throw new IllegalArgumentException("strikes must not be empty");
+		}
+		this._strikes = strikes.clone();
+		this._maturities = maturities.clone();
+		this._prices = new double[maturities.length][strikes.length];
+		this._errors = new double[maturities.length][strikes.length];
+	}
+
+	// Getters
+	public double[] getStrikes() {
+		return this._strikes.clone();
+	}
+
+	public int[] getMaturities() {
+		return this._maturities.clone();
+	}
+
+	public long getNumTrial() {
+		return this._num_trial;
+	}
+
+	/**
+	 *
+	 * @param maturity index of the maturity
+	 * @param strike index of the strike
+	 * @return the discounted price of the contract in the last run
+	 */
+	public double getPrice(int maturity, int strike) {
+		return this._prices[maturity][strike];
+	}
+
+	// Discounted confidence half width of the contract in the last run
+	public double getError(int maturity, int strike) {
+		return this._errors[maturity][strike];
+	}
+
+	/**
+	 * Price the whole chain
+	 * @return the discounted prices, one row per maturity and one column per strike
+	 */
+	public double[][] simulateChain() {
+		int maturities = this._maturities.length;
+		int strikes = this._strikes.length;
+		StatsCollector[][] collectors = new StatsCollector[maturities][strikes];
+		CallPayOut[] payouts = new CallPayOut[strikes];
+		for (int k = 0; k < strikes; ++ k) {
+			payouts[k] = new CallPayOut(this._strikes[k], this._type);
+			for (int m = 0; m < maturities; ++ m) {
+				collectors[m][k] = new StatsCollector();
+			}
+		}
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+
+		double error = Double.MAX_VALUE;
+		long count = 0;
+
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, newGenerator());
+		PathStatistics statistics = new PathStatistics();
+
+		// a contract out of the money on every path has a zero error, so only the minimum count guards the start
+		while (error > this._error || count < this._minWeightedTrials) {
+			for (int i_1 = 0; i_1 < this._blockSize; ++ i_1) {
+				double[] prices = BrownianPath.getPricePath().getPriceArray();
+				statistics.reset(prices[0]);
+				for (int t = 1, m = 0; m < maturities; ++ t) {
+					statistics.add(prices[t]);
+					// several maturities may fall on the same day
+					for (; m < maturities && this._maturities[m] == t; ++ m) {
+						for (int k = 0; k < strikes; ++ k) {
+							collectors[m][k].update(payouts[k].getPayout(statistics));
+						}
+					}
+				}
+			}
+			count += this._blockSize;
+
+			error = 0.0;
+			for (int m = 0; m < maturities; ++ m) {
+				for (int k = 0; k < strikes; ++ k) {
+					error = Math.max(error, criteria * collectors[m][k].getStd() / Math.sqrt(count));
+				}
+			}
+		}
+		this._num_trial = count;
+
+		for (int m = 0; m < maturities; ++ m) {
+			double discount = Math.exp(-this._interestRate * this._maturities[m]);
+			for (int k = 0; k < strikes; ++ k) {
+				this._prices[m][k] = collectors[m][k].getMean() * discount;
+				this._errors[m][k] = criteria * collectors[m][k].getStd() / Math.sqrt(count) * discount;
+			}
+		}
+		return this._prices;
+	}
+
+	// The paths run to the last maturity, the maturities must increase
+	private static int lastMaturity(int[] maturities) {
+		if (maturities.length == 0) {
+			throw new IllegalArgumentException("maturities must not be empty");
+		}
+		for (int m = 0; m < maturities.length; ++ m) {
+			if (maturities[m] < 1 || (m > 0 && maturities[m] < maturities[m - 1])) {
+				throw new IllegalArgumentException("maturities must be positive and increasing");
+			}
+		}
+		return maturities[maturities.length - 1];
+	}
+
+	public static void main(String[] args) {
+
+		// Define the underlying
+		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
+		double[] strikes = {140, 145, 150, 155, 160, 165, 170};
+		int[] maturities = {21, 63, 126, 252};
+		// p-value and error
+		double probability = 0.96;
+		double error = 0.1;
+		// Simulate the chain
+		StdOut.println("European Option Chain Prices:");
+		OptionChainSimulation IBM_chain = new OptionChainSimulation(IBM_eu, strikes, maturities, probability, error);
+		double[][] prices = IBM_chain.simulateChain();
+		StdOut.println("Strikes " + Arrays.toString(strikes));
+		for (int m = 0; m < maturities.length; ++ m) {
+			StdOut.println("Day " + maturities[m] + " " + Arrays.toString(prices[m]));
+		}
+		StdOut.println("Paths: " + IBM_chain.getNumTrial());
+	}
+
+}
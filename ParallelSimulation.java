@@ -0,0 +1,220 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * This class runs the Monte Carlo simulation on several threads. Every worker owns its
+ * random vector generator, path and payout, and simulates a batch of paths per round.
+ * The partial statistics are merged after each round and the stopping rule is checked on
+ * the merged result.
+ *
+ * A generator cannot be shared by the threads, so setRandomVectorGenerator is rejected and
+ * another generator is given by setGeneratorFactory, which creates one per worker; without
+ * a factory every worker draws from its own xoshiro256** generator. Streaming mode prices
+ * every path from its statistics, as in Simulation.
+ * @author xiaog
+ *
+ */
+
+public class ParallelSimulation extends Simulation {
+
+	protected int _threads;
+	protected int _batchSize = 10000; // paths simulated by each worker between two convergence checks, rounded up to whole blocks
+	protected RandomVectorGeneratorFactory _factory; // generators of the workers, xoshiro256** when not set
+
+	// Constructors
+	public ParallelSimulation(Option<?,?> option, int length, double probability, double error) {
+		this(option, length, probability, error, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelSimulation(Option<?,?> option, int length, double probability, double error, int threads) {
+		super(option, length, probability, error);
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		this._threads = threads;
+	}
+
+	// Modifiers
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		this._batchSize = batchSize;
+	}
+
+	// Give every worker its own generator, e.g. worker -> new SobolRandomVectorGenerator(length, seed + worker)
+	public void setGeneratorFactory(RandomVectorGeneratorFactory factory) {
+		this._factory = factory;
+	}
+
+	/**
+	 * A single generator would be used by all the threads at once, only null, the default
+	 * generators, is accepted; use setGeneratorFactory instead
+	 */
+	@Override
+	public void setRandomVectorGenerator(RandomVectorGenerator generator) {
+		if (generator != null) {
+			throw new IllegalArgumentException("A ParallelSimulation needs one generator per worker, use setGeneratorFactory");
+		}
+		this._factory = null;
+	}
+
+	// The generator of worker 0, for the single threaded methods inherited from Simulation
+	@Override
+	protected RandomVectorGenerator newGenerator() {
+		if (this._factory != null) {
+			return this._factory.newGenerator(0);
+		}
+		return super.newGenerator();
+	}
+
+	// Getters
+	public int getThreads() {
+		return this._threads;
+	}
+
+	public int getBatchSize() {
+		return this._batchSize;
+	}
+
+	public RandomVectorGeneratorFactory getGeneratorFactory() {
+		return this._factory;
+	}
+
+	public long getNumTrial() {
+		return this._num_trial;
+	}
+
+	/**
+	 * A worker simulates a batch of antithetic path pairs with its own generator
+	 * and returns the partial statistics of the payouts.
+	 */
+	private class Worker implements Callable<StatsCollector> {
+
+		private StockPathExponentialBrownian _path;
+		private CallPayOut _payout;
+		private PathBlock _block;
+		private PathStatistics _statistics;
+		private double[] _profits;
+		private int _paths; // paths per call, rounded up to whole blocks
+
+		Worker(int worker, int paths) {
+			this._paths = paths;
+			RandomVectorGenerator generator = _factory != null ? _factory.newGenerator(worker)
+					: new Xoshiro256RandomVectorGenerator(_length);
+			this._path = new StockPathExponentialBrownian(_option, generator);
+			this._payout = new CallPayOut(_option.getStrikePrice(), _option.getPayOutType());
+			this._block = _streaming ? null : new PathBlock(_blockSize, _length);
+			this._statistics = new PathStatistics();
+			this._profits = new double[_blockSize];
+		}
+
+		@Override
+		public StatsCollector call() {
+			StatsCollector collector = new StatsCollector();
+			int blocks = (this._paths + _blockSize - 1) / _blockSize;
+			for (int i_1 = 0; i_1 < blocks; ++ i_1) {
+				// a whole block of antithetic path pairs, stored or streamed
+				priceBlock(this._path, this._payout, this._block, this._statistics, this._profits);
+				for (int i_2 = 0; i_2 < _blockSize; ++ i_2) {
+					collector.update(this._profits[i_2]);
+				}
+			}
+			return collector;
+		}
+	}
+
+	@Override
+	public double simulate() {
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int i_1 = 0; i_1 < this._threads; ++ i_1) {
+			workers.add(new Worker(i_1, this._batchSize));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(this._threads);
+		StatsCollector collector = new StatsCollector();
+		double error = Double.MAX_VALUE;
+		try {
+			while (error > this._error || error == 0.0) {
+				// run one batch on every worker and merge the partial results
+				for (Future<StatsCollector> result : pool.invokeAll(workers)) {
+					collector.merge(result.get());
+				}
+				error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The simulation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A simulation worker failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		this._num_trial = collector.getCount();
+		double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+
+	// The paths are split evenly over the workers, one round without stopping rule
+	@Override
+	public double simulatePaths(int paths) {
+		if (paths < 1) {
+			throw new IllegalArgumentException("paths must be positive");
+		}
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int i_1 = 0; i_1 < this._threads; ++ i_1) {
+			workers.add(new Worker(i_1, (paths + this._threads - 1) / this._threads));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(this._threads);
+		StatsCollector collector = new StatsCollector();
+		try {
+			for (Future<StatsCollector> result : pool.invokeAll(workers)) {
+				collector.merge(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The simulation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A simulation worker failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		this._num_trial = collector.getCount();
+		return collector.getMean() * Math.exp(-this._interestRate * this._length);
+	}
+
+	public static void main(String[] args) {
+
+		// Define two objects
+		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		// p-value, error and length
+		double probability = 0.96;
+		double error = 0.1;
+		int period = 252;
+		// Simulate European option
+		StdOut.println("Case 1 European Option Price:");
+		ParallelSimulation IBM_european = new ParallelSimulation(IBM_eu, period, probability, error/2);
+		IBM_european.simulate();
+
+		// Simulate Asian option
+		StdOut.println("Case 2 Asian Option Price:");
+		ParallelSimulation IBM_asian = new ParallelSimulation(IBM_as, period, probability, error/2);
+		IBM_asian.simulate();
+
+	}
+
+}
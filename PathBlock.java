@@ -0,0 +1,59 @@
+package MonteCarlo;
+
+/**
+ * This class stores a block of price paths in struct-of-arrays form. The prices of all the
+ * paths at time t are contiguous, the price of path p at time t is at index t * getPathCount() + p.
+ * Payouts can then be computed for the whole block with simple loops over primitive arrays.
+ * @author xiaog
+ *
+ */
+
+public class PathBlock {
+
+	private double[] _prices;
+	private int _pathCount;
+	private int _length; // number of time steps, every path holds _length + 1 prices
+
+	// Constructors
+	public PathBlock(int pathCount, int length) {
+		this._pathCount = pathCount;
+		this._length = length;
+		this._prices = new double[(length + 1) * pathCount];
+	}
+
+	// Modifiers
+	// The backing array is only reallocated when it is too small for the new size
+	public void setSize(int pathCount, int length) {
+		if (this._prices.length < (length + 1) * pathCount) {
+			this._prices = new double[(length + 1) * pathCount];
+		}
+		this._pathCount = pathCount;
+		this._length = length;
+	}
+
+	public void setPrice(int path, int time, double price) {
+		this._prices[time * this._pathCount + path] = price;
+	}
+
+	// Getters
+	public int getPathCount() {
+		return this._pathCount;
+	}
+
+	public int getLength() {
+		return this._length;
+	}
+
+	public double getPrice(int path, int time) {
+		return this._prices[time * this._pathCount + path];
+	}
+
+	/**
+	 *
+	 * @return the backing array in time-major order
+	 */
+	public double[] getPriceArray() {
+		return this._prices;
+	}
+
+}
@@ -0,0 +1,77 @@
+package MonteCarlo;
+
+/**
+ * This class accumulates the statistics of a price path while it is generated: terminal price,
+ * running sum, maximum and minimum. The path itself is never stored, so the memory per path is
+ * constant whatever the number of time steps.
+ * @author xiaog
+ *
+ */
+
+public class PathStatistics {
+
+	private int _length; // number of time steps pushed after the initial price
+	private double _initialPrice;
+	private double _terminalPrice;
+	private double _sum;
+	private double _max;
+	private double _min;
+
+	public PathStatistics() {
+		reset(0.0);
+	}
+
+	// Start a new path from its initial price
+	public void reset(double initialPrice) {
+		this._length = 0;
+		this._initialPrice = initialPrice;
+		this._terminalPrice = initialPrice;
+		this._sum = initialPrice;
+		this._max = initialPrice;
+		this._min = initialPrice;
+	}
+
+	// Push the price of the next time step
+	public void add(double price) {
+		++ this._length;
+		this._terminalPrice = price;
+		this._sum += price;
+		if (price > this._max) {
+			this._max = price;
+		}
+		if (price < this._min) {
+			this._min = price;
+		}
+	}
+
+	// Getters
+	public int getLength() {
+		return this._length;
+	}
+
+	public double getInitialPrice() {
+		return this._initialPrice;
+	}
+
+	public double getTerminalPrice() {
+		return this._terminalPrice;
+	}
+
+	public double getSum() {
+		return this._sum;
+	}
+
+	// Average over all the prices of the path, the initial price included
+	public double getAverage() {
+		return this._sum / (this._length + 1);
+	}
+
+	public double getMax() {
+		return this._max;
+	}
+
+	public double getMin() {
+		return this._min;
+	}
+
+}
@@ -1,7 +1,29 @@
-package MonteCarlo;
-
-public interface PayOut {
-	
-	public double getPayout(StockPath path);
-
-}
+package MonteCarlo;
+
+public interface PayOut {
+	
+	public double getPayout(StockPath path);
+	
+	// Adapter to the pairPrice API, implementations override it to price the array directly
+	public default double getPayout(PricePath path) {
+		StockPath prices = () -> path.toPairList();
+		return getPayout(prices);
+	}
+	
+	// A streamed path keeps only its statistics, a payout of the whole path cannot use them
+	public default double getPayout(PathStatistics statistics) {
+		throw new UnsupportedOperationException(getClass().getName() + " cannot price from path statistics");
+	}
+	
+	// Compute the payouts of every path in the block, payouts[p] belongs to path p
+	public default void getPayouts(PathBlock block, double[] payouts) {
+		PricePath path = new PricePath(block.getLength());
+		for (int p = 0; p < block.getPathCount(); ++ p) {
+			for (int t = 0; t <= block.getLength(); ++ t) {
+				path.setPrice(t, block.getPrice(p, t));
+			}
+			payouts[p] = getPayout(path);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package MonteCarlo;
+
+import java.util.Random;
+/**
+ * Normal vectors from PCG32 (O'Neill, XSH RR output on a 64-bit LCG), through the ziggurat
+ * sampler. Generators with the same seed and different streams are independent.
+ * @author xiaog
+ *
+ */
+
+public class Pcg32RandomVectorGenerator extends ZigguratRandomVectorGenerator {
+
+	private static final long MULTIPLIER = 6364136223846793005L;
+
+	private long _state;
+	private long _increment; // odd, selects the stream
+
+	public Pcg32RandomVectorGenerator(int length) {
+		this(length, new Random().nextLong(), 0);
+	}
+
+	public Pcg32RandomVectorGenerator(int length, long seed) {
+		this(length, seed, 0);
+	}
+
+	public Pcg32RandomVectorGenerator(int length, long seed, long stream) {
+		super(length);
+		setSeed(seed, stream);
+	}
+
+	// Seeding of the reference implementation, pcg32_srandom_r
+	public void setSeed(long seed, long stream) {
+		this._increment = (stream << 1) | 1;
+		this._state = 0;
+		nextInt();
+		this._state += seed;
+		nextInt();
+	}
+
+	// The next 32 random bits
+	public int nextInt() {
+		long old = this._state;
+		this._state = old * MULTIPLIER + this._increment;
+		int xorShifted = (int) (((old >>> 18) ^ old) >>> 27);
+		int rotation = (int) (old >>> 59);
+		return Integer.rotateRight(xorShifted, rotation);
+	}
+
+	@Override
+	protected long nextLong() {
+		return ((long) nextInt() << 32) | (nextInt() & 0xFFFFFFFFL);
+	}
+
+}
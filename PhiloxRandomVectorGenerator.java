@@ -0,0 +1,153 @@
+package MonteCarlo;
+
+/**
+ * Normal vectors from the counter-based Philox4x32-10 generator, the Java port of
+ * CL_Generation.PHILOX_SOURCE. The normals of a path only depend on the seed and the index of
+ * the path, so any thread, or the OpenCL kernels, can produce path i without generating the
+ * paths before it.
+ *
+ * Path i of length n uses the counters i * ceil(n / 2) + k, k < ceil(n / 2); each counter gives
+ * the two normals of two consecutive steps, like the Asian branch of CL_FusedPricing.
+ * terminalNormal gives the single normal of the terminal value of path i with the layout of
+ * the European branch, two paths per counter.
+ *
+ * The Philox words and the uniforms are the same bit for bit as on the device. The device
+ * computes Box-Muller in float and this class in double, so the normals agree to float
+ * precision (about 1e-7), not bit for bit.
+ * @author xiaog
+ *
+ */
+
+public class PhiloxRandomVectorGenerator implements BulkRandomVectorGenerator {
+
+	private long _seed;
+	private int _length;
+	private long _path; // index of the path returned by the next call of getVector
+	private double[] _vector;
+	private int[] _words = new int[4];
+
+	public PhiloxRandomVectorGenerator(int length, long seed) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be positive");
+		}
+		this._length = length;
+		this._seed = seed;
+		this._vector = new double[length];
+	}
+
+	// Modifiers
+	// Jump to a path, the next call of getVector returns its normals
+	public void setPath(long path) {
+		if (path < 0) {
+			throw new IllegalArgumentException("path must not be negative");
+		}
+		this._path = path;
+	}
+
+	// Getters
+	public long getSeed() {
+		return this._seed;
+	}
+
+	public int getLength() {
+		return this._length;
+	}
+
+	public long getPath() {
+		return this._path;
+	}
+
+	/**
+	 *
+	 * @return the normals of the next path, the array is reused by the next call
+	 */
+	@Override
+	public double[] getVector() {
+		fillPath(this._path ++, this._vector, 0);
+		return this._vector;
+	}
+
+	/**
+	 * Fill the normals of the next len / getLength() paths, path after path
+	 * @param out the array to be overwritten
+	 * @param off first index to fill
+	 * @param len number of normals, a multiple of the length of a path
+	 */
+	@Override
+	public void fill(double[] out, int off, int len) {
+		if (len % this._length != 0) {
+			throw new IllegalArgumentException("len must be a multiple of the path length " + this._length);
+		}
+		for (int i_1 = off; i_1 < off + len; i_1 += this._length) {
+			fillPath(this._path ++, out, i_1);
+		}
+	}
+
+	/**
+	 * The normal of the terminal value of a path, from the counter path / 2
+	 * @param seed key of the stream
+	 * @param path index of the path
+	 * @return the standard normal of the terminal value
+	 */
+	public static double terminalNormal(long seed, long path) {
+		int[] words = new int[4];
+		philox((int) (path >>> 1), (int) (path >>> 33), 0, 0, (int) seed, (int) (seed >>> 32), words);
+		return (path & 1) == 0 ? normal(words, true) : normal(words, false);
+	}
+
+	// The normals of one path, two per counter
+	private void fillPath(long path, double[] out, int off) {
+		long counter = path * ((this._length + 1) / 2);
+		int key0 = (int) this._seed;
+		int key1 = (int) (this._seed >>> 32);
+		for (int j = 0; j < this._length; j += 2, ++ counter) {
+			philox((int) counter, (int) (counter >>> 32), 0, 0, key0, key1, this._words);
+			out[off + j] = normal(this._words, true);
+			if (j + 1 < this._length) {
+				out[off + j + 1] = normal(this._words, false);
+			}
+		}
+	}
+
+	// Box-Muller on the first two words, the cosine or the sine branch
+	private static double normal(int[] words, boolean first) {
+		double radius = Math.sqrt(-2.0 * Math.log(uniform(words[0])));
+		double angle = 2.0 * Math.PI * uniform(words[1]);
+		return first ? radius * Math.cos(angle) : radius * Math.sin(angle);
+	}
+
+	// philox_uniform of the kernel: the float rounding is part of the stream, so it is kept
+	static float uniform(int x) {
+		return ((x >>> 8) + 0.5f) * (1.0f / 16777216.0f);
+	}
+
+	/**
+	 * Philox4x32 with 10 rounds, as in Random123
+	 * @param out the four output words
+	 */
+	static void philox(int c0, int c1, int c2, int c3, int k0, int k1, int[] out) {
+		for (int r = 0; r < 10; ++ r) {
+			if (r > 0) {
+				k0 += 0x9E3779B9;
+				k1 += 0xBB67AE85;
+			}
+			long product0 = 0xD2511F53L * (c0 & 0xFFFFFFFFL);
+			long product1 = 0xCD9E8D57L * (c2 & 0xFFFFFFFFL);
+			int hi0 = (int) (product0 >>> 32);
+			int lo0 = (int) product0;
+			int hi1 = (int) (product1 >>> 32);
+			int lo1 = (int) product1;
+			int next0 = hi1 ^ c1 ^ k0;
+			int next2 = hi0 ^ c3 ^ k1;
+			c0 = next0;
+			c1 = lo1;
+			c2 = next2;
+			c3 = lo0;
+		}
+		out[0] = c0;
+		out[1] = c1;
+		out[2] = c2;
+		out[3] = c3;
+	}
+
+}
@@ -0,0 +1,76 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+/**
+ * This class stores a price path as a primitive array. The price at time i is kept at index i,
+ * so a path generator can refill the same object for every path without boxing or allocation.
+ * @author xiaog
+ *
+ */
+
+public class PricePath {
+
+	private double[] _prices;
+	private int _length; // number of time steps, the path holds _length + 1 prices
+
+	// Constructors
+	public PricePath() {
+		this(0);
+	}
+
+	public PricePath(int length) {
+		this._length = length;
+		this._prices = new double[length + 1];
+	}
+
+	// Modifiers
+	// The backing array is only reallocated when it is too small for the new length
+	public void setLength(int length) {
+		if (this._prices.length < length + 1) {
+			this._prices = new double[length + 1];
+		}
+		this._length = length;
+	}
+
+	public void setPrice(int time, double price) {
+		this._prices[time] = price;
+	}
+
+	// Getters
+	public int getLength() {
+		return this._length;
+	}
+
+	public double getPrice(int time) {
+		return this._prices[time];
+	}
+
+	public double getInitialPrice() {
+		return this._prices[0];
+	}
+
+	public double getTerminalPrice() {
+		return this._prices[this._length];
+	}
+
+	/**
+	 *
+	 * @return the backing array, only the first getLength() + 1 entries belong to the path
+	 */
+	public double[] getPriceArray() {
+		return this._prices;
+	}
+
+	/**
+	 * Adapter for callers of the pairPrice based StockPath API
+	 * @return the path as a list of (time, price) pairs
+	 */
+	public ArrayList<pairPrice<Integer, Double>> toPairList() {
+		ArrayList<pairPrice<Integer, Double>> pricelist = new ArrayList<pairPrice<Integer, Double>>(this._length + 1);
+		for (int i_1 = 0; i_1 <= this._length; ++ i_1) {
+			pricelist.add(new pairPrice<Integer, Double>(i_1, this._prices[i_1]));
+		}
+		return pricelist;
+	}
+
+}
@@ -0,0 +1,230 @@
+package MonteCarlo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * This class memoizes simulated prices by PricingKey. The cache holds at most _maxSize prices
+ * and evicts the least recently used one beyond that; a price older than the time to live is
+ * evicted when it is read. Concurrent requests for the same key while it is being simulated
+ * wait for that one simulation instead of starting their own (single flight). Failed
+ * simulations are not cached.
+ * @author xiaog
+ *
+ */
+
+public class PricingCache {
+
+	/**
+	 * The simulation behind the cache.
+	 */
+	public interface Pricer {
+		public double price(Option<?,?> option, int length, double probability, double error);
+	}
+
+	// Simulation.simulate() on the CPU
+	public static final Pricer SIMULATION = new Pricer() {
+		@Override
+		public double price(Option<?,?> option, int length, double probability, double error) {
+			return new Simulation(option, length, probability, error).simulate();
+		}
+	};
+
+	// Simulation_CL.simulateFused() on the default OpenCL device, which like the key only
+	// depends on the length and not on the duration of the option
+	public static final Pricer SIMULATION_CL = new Pricer() {
+		@Override
+		public double price(Option<?,?> option, int length, double probability, double error) {
+			return new Simulation_CL(option, length, probability, error).simulateFused();
+		}
+	};
+
+	private static class Entry {
+		final double _price;
+		final long _time; // System.nanoTime() of the simulation
+
+		Entry(double price, long time) {
+			this._price = price;
+			this._time = time;
+		}
+	}
+
+	private final Pricer _pricer;
+	private final int _maxSize;
+	private final long _timeToLive; // nanoseconds, 0 for no expiry
+	private final LinkedHashMap<PricingKey, Entry> _entries; // in access order, guarded by itself
+	private final ConcurrentHashMap<PricingKey, FutureTask<Double>> _inFlight = new ConcurrentHashMap<PricingKey, FutureTask<Double>>();
+	private final AtomicLong _hits = new AtomicLong();
+	private final AtomicLong _misses = new AtomicLong();
+	private final AtomicLong _evictions = new AtomicLong();
+	private final AtomicLong _shared = new AtomicLong();
+
+	// Constructors
+	public PricingCache(Pricer pricer, int maxSize) {
+		this(pricer, maxSize, 0);
+	}
+
+	/**
+	 *
+	 * @param pricer the simulation run on a miss
+	 * @param maxSize the largest number of cached prices
+	 * @param timeToLiveMillis the age in milliseconds after which a price is simulated again, 0 to keep prices until evicted by size
+	 */
+	public PricingCache(Pricer pricer, int maxSize, long timeToLiveMillis) {
+		if (pricer == null) {
+			throw new IllegalArgumentException("pricer must not be null");
+		}
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		if (timeToLiveMillis < 0) {
+			throw new IllegalArgumentException("timeToLiveMillis must not be negative");
+		}
+		this._pricer = pricer;
+		this._maxSize = maxSize;
+		this._timeToLive = timeToLiveMillis * 1000000L;
+		this._entries = new LinkedHashMap<PricingKey, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PricingKey, Entry> eldest) {
+				if (size() > PricingCache.this._maxSize) {
+					PricingCache.this._evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The cached price of the option, simulated on a miss
+	 * @param option the option to be priced
+	 * @param length number of time steps
+	 * @param probability confidence level of the error
+	 * @param error target error of the price
+	 * @return the price
+	 */
+	public double getPrice(final Option<?,?> option, final int length, final double probability, final double error) {
+		final PricingKey key = new PricingKey(option, length, probability, error);
+		Entry entry = lookup(key);
+		if (entry != null) {
+			this._hits.incrementAndGet();
+			return entry._price;
+		}
+
+		FutureTask<Double> task = new FutureTask<Double>(new Callable<Double>() {
+			@Override
+			public Double call() {
+				// a simulation of the same key may have finished since the lookup
+				Entry done = lookup(key);
+				if (done != null) {
+					return done._price;
+				}
+				double price = _pricer.price(option, length, probability, error);
+				synchronized (_entries) {
+					_entries.put(key, new Entry(price, System.nanoTime()));
+				}
+				return price;
+			}
+		});
+		FutureTask<Double> running = this._inFlight.putIfAbsent(key, task);
+		if (running == null) {
+			this._misses.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				this._inFlight.remove(key, task);
+			}
+		} else {
+			this._shared.incrementAndGet();
+			task = running;
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the price of " + key, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("The simulation of " + key + " failed", e.getCause());
+		}
+	}
+
+	// Drop every cached price, the counters are kept
+	public void clear() {
+		synchronized (this._entries) {
+			this._entries.clear();
+		}
+	}
+
+	// Drop the prices older than the time to live
+	public void evictExpired() {
+		if (this._timeToLive == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (this._entries) {
+			Iterator<Entry> iterator = this._entries.values().iterator();
+			while (iterator.hasNext()) {
+				if (now - iterator.next()._time > this._timeToLive) {
+					iterator.remove();
+					this._evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	// Getters
+	public int size() {
+		synchronized (this._entries) {
+			return this._entries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return this._maxSize;
+	}
+
+	// Requests answered from the cache
+	public long getHits() {
+		return this._hits.get();
+	}
+
+	// Requests that started a simulation
+	public long getMisses() {
+		return this._misses.get();
+	}
+
+	// Prices dropped by size or age
+	public long getEvictions() {
+		return this._evictions.get();
+	}
+
+	// Requests that waited for the simulation of a concurrent identical request
+	public long getShared() {
+		return this._shared.get();
+	}
+
+	// The live entry of the key, an expired one is evicted
+	private Entry lookup(PricingKey key) {
+		synchronized (this._entries) {
+			Entry entry = this._entries.get(key);
+			if (entry != null && this._timeToLive != 0 && System.nanoTime() - entry._time > this._timeToLive) {
+				this._entries.remove(key);
+				this._evictions.incrementAndGet();
+				return null;
+			}
+			return entry;
+		}
+	}
+
+}
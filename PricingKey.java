@@ -0,0 +1,113 @@
+package MonteCarlo;
+
+/**
+ * The parameters that determine a simulated price: the fields of the option used by the
+ * simulation and the accuracy settings. The name and the dates of the option do not change
+ * the price and are left out, and -0.0 is stored as 0.0, so equal requests have equal keys.
+ * @author xiaog
+ *
+ */
+
+public final class PricingKey {
+
+	private final double _startPrice;
+	private final double _strikePrice;
+	private final double _interestRate;
+	private final double _volatility;
+	private final String _type;
+	private final int _length;
+	private final double _probability;
+	private final double _error;
+	private final int _hash;
+
+	public PricingKey(Option<?,?> option, int length, double probability, double error) {
+		this._startPrice = normalize(option.getStartPrice());
+		this._strikePrice = normalize(option.getStrikePrice());
+		this._interestRate = normalize(option.getInterestRate());
+		this._volatility = normalize(option.getVolatility());
+		this._type = option.getPayOutType();
+		this._length = length;
+		this._probability = normalize(probability);
+		this._error = normalize(error);
+
+		int hash = Double.hashCode(this._startPrice);
+		hash = 31 * hash + Double.hashCode(this._strikePrice);
+		hash = 31 * hash + Double.hashCode(this._interestRate);
+		hash = 31 * hash + Double.hashCode(this._volatility);
+		hash = 31 * hash + (this._type == null ? 0 : this._type.hashCode());
+		hash = 31 * hash + this._length;
+		hash = 31 * hash + Double.hashCode(this._probability);
+		hash = 31 * hash + Double.hashCode(this._error);
+		this._hash = hash;
+	}
+
+	// Getters
+	public double getStartPrice() {
+		return this._startPrice;
+	}
+
+	public double getStrikePrice() {
+		return this._strikePrice;
+	}
+
+	public double getInterestRate() {
+		return this._interestRate;
+	}
+
+	public double getVolatility() {
+		return this._volatility;
+	}
+
+	public String getPayOutType() {
+		return this._type;
+	}
+
+	public int getLength() {
+		return this._length;
+	}
+
+	public double getProbability() {
+		return this._probability;
+	}
+
+	public double getError() {
+		return this._error;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof PricingKey)) {
+			return false;
+		}
+		PricingKey key = (PricingKey) other;
+		// Double.compare keeps equals consistent with Double.hashCode, NaN included
+		return Double.compare(this._startPrice, key._startPrice) == 0
+				&& Double.compare(this._strikePrice, key._strikePrice) == 0
+				&& Double.compare(this._interestRate, key._interestRate) == 0
+				&& Double.compare(this._volatility, key._volatility) == 0
+				&& (this._type == null ? key._type == null : this._type.equals(key._type))
+				&& this._length == key._length
+				&& Double.compare(this._probability, key._probability) == 0
+				&& Double.compare(this._error, key._error) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return this._hash;
+	}
+
+	@Override
+	public String toString() {
+		return this._type + " S0=" + this._startPrice + " K=" + this._strikePrice + " r=" + this._interestRate
+				+ " v=" + this._volatility + " length=" + this._length + " p=" + this._probability + " error=" + this._error;
+	}
+
+	// -0.0 and 0.0 price the same option
+	private static double normalize(double value) {
+		return value == 0.0 ? 0.0 : value;
+	}
+
+}
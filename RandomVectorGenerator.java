@@ -1,9 +1,9 @@
-package MonteCarlo;
-
-
-public interface RandomVectorGenerator {
-	
-	// create random vectors
-	public double[] getVector();
-
+package MonteCarlo;
+
+
+public interface RandomVectorGenerator {
+	
+	// create random vectors
+	public double[] getVector();
+
 }
\ No newline at end of file
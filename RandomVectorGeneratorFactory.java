@@ -0,0 +1,20 @@
+package MonteCarlo;
+
+/**
+ * Creates the random vector generator of one worker of a ParallelSimulation. A generator is
+ * used by a single thread, so every worker needs its own, and the streams of the workers must
+ * be independent, e.g. other seeds, SplittableRandom.split() or Philox path offsets.
+ * @author xiaog
+ *
+ */
+
+public interface RandomVectorGeneratorFactory {
+
+	/**
+	 *
+	 * @param worker index of the worker, from 0
+	 * @return a new generator, not shared with any other worker
+	 */
+	public RandomVectorGenerator newGenerator(int worker);
+
+}
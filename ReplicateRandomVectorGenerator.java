@@ -0,0 +1,19 @@
+package MonteCarlo;
+
+/**
+ * A generator whose vectors are not independent within a replicate, e.g. a scrambled Sobol
+ * sequence or a Latin hypercube batch, while the replicates are. Simulation.simulateReplicates
+ * applies the stopping rule to the i.i.d. replicate means.
+ * @author xiaog
+ *
+ */
+
+public interface ReplicateRandomVectorGenerator extends RandomVectorGenerator {
+
+	// Start a new independent replicate on the next call of getVector
+	public void nextReplicate();
+
+	// Number of normals of a vector
+	public int getLength();
+
+}
@@ -0,0 +1,171 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * This class runs a simulation whose result only depends on the seed. Path i always gets the
+ * normals of PhiloxRandomVectorGenerator for index i, the paths are cut into chunks of
+ * consecutive indices, and the statistics of the chunks are merged in the order of the chunks
+ * with the stopping rule checked after each chunk. The threads only decide which chunk is
+ * computed where, so the price and the number of paths are the same on 1 or 64 threads.
+ *
+ * The layout of the paths is the one of CL_FusedPricing: the European call simulates the
+ * terminal value of path i directly, the Asian call walks the daily steps of path i, and with
+ * the same seed Simulation_CL.simulateFused uses the same Philox counters. The device checks
+ * its stopping rule once per batch of the fused kernel, so it only stops after the same paths
+ * when the chunks are its batches: setChunkSize(Simulation_CL.getBatchPaths()). The two runs
+ * then price the same paths, and the device's float arithmetic makes the prices agree to float
+ * precision rather than bit for bit; a run whose error is within float rounding of the target
+ * at a batch boundary may still stop one batch apart.
+ * @author xiaog
+ *
+ */
+
+public class ReproducibleSimulation extends Simulation {
+
+	protected long _streamSeed;
+	protected int _threads;
+	protected long _chunkSize = 4096; // paths between two checks of the stopping rule
+
+	// Constructors
+	public ReproducibleSimulation(Option<?,?> option, int length, double probability, double error, long seed) {
+		this(option, length, probability, error, seed, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ReproducibleSimulation(Option<?,?> option, int length, double probability, double error, long seed, int threads) {
+		super(option, length, probability, error);
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		this._streamSeed = seed;
+		this._threads = threads;
+	}
+
+	// Modifiers
+	// The chunk size is part of the result, it decides where the stopping rule may stop
+	public void setChunkSize(long chunkSize) {
+		if (chunkSize < 2) {
+			throw new IllegalArgumentException("chunkSize must be at least 2");
+		}
+		this._chunkSize = chunkSize;
+	}
+
+	// Getters
+	public long getSeed() {
+		return this._streamSeed;
+	}
+
+	public int getThreads() {
+		return this._threads;
+	}
+
+	public long getChunkSize() {
+		return this._chunkSize;
+	}
+
+	public long getNumTrial() {
+		return this._num_trial;
+	}
+
+	/**
+	 * The payouts of the paths of one chunk, in the order of their indices.
+	 */
+	private class Chunk implements Callable<StatsCollector> {
+
+		private long _index;
+
+		Chunk(long index) {
+			this._index = index;
+		}
+
+		@Override
+		public StatsCollector call() {
+			StatsCollector collector = new StatsCollector();
+			PhiloxRandomVectorGenerator normpath = new PhiloxRandomVectorGenerator(_length, _streamSeed);
+			StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(_option, normpath);
+			CallPayOut payout = new CallPayOut(_option.getStrikePrice(), _option.getPayOutType());
+			PricePath path = new PricePath(_length);
+			boolean european = payout.getPayoutType() == CallPayOut.TYPE_EUROPEAN;
+			double[] terminal = new double[1];
+
+			long first = this._index * _chunkSize;
+			normpath.setPath(first);
+			for (long i_1 = first; i_1 < first + _chunkSize; ++ i_1) {
+				if (european) {
+					// one step over the whole maturity
+					terminal[0] = PhiloxRandomVectorGenerator.terminalNormal(_streamSeed, i_1);
+					BrownianPath.fillPricePath(terminal, 1, _length, path);
+				} else {
+					BrownianPath.fillPricePath(normpath.getVector(), path);
+				}
+				collector.update(payout.getPayout(path));
+			}
+			return collector;
+		}
+	}
+
+	@Override
+	public double simulate() {
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+
+		ExecutorService pool = Executors.newFixedThreadPool(this._threads);
+		StatsCollector collector = new StatsCollector();
+		double error = Double.MAX_VALUE;
+		long next = 0;
+		try {
+			while (error > this._error || error == 0.0) {
+				// one chunk per thread, merged in chunk order until the stopping rule holds
+				List<Chunk> chunks = new ArrayList<Chunk>();
+				for (int i_1 = 0; i_1 < this._threads; ++ i_1) {
+					chunks.add(new Chunk(next ++));
+				}
+				for (Future<StatsCollector> result : pool.invokeAll(chunks)) {
+					collector.merge(result.get());
+					error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+					if (error <= this._error && error != 0.0) {
+						// the chunks after this one are dropped, whatever the thread count
+						break;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The simulation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A simulation worker failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		this._num_trial = collector.getCount();
+		double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+
+	public static void main(String[] args) {
+
+		// Define two objects
+		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		// p-value, error, length and seed
+		double probability = 0.96;
+		double error = 0.1;
+		int period = 252;
+		long seed = 20180401L;
+		// The same price on one thread and on all of them
+		StdOut.println("Case 1 European Option Price:");
+		new ReproducibleSimulation(IBM_eu, period, probability, error/2, seed, 1).simulate();
+		new ReproducibleSimulation(IBM_eu, period, probability, error/2, seed).simulate();
+		StdOut.println("Case 2 Asian Option Price:");
+		new ReproducibleSimulation(IBM_as, period, probability, error/2, seed, 1).simulate();
+		new ReproducibleSimulation(IBM_as, period, probability, error/2, seed).simulate();
+	}
+
+}
@@ -0,0 +1,245 @@
+package MonteCarlo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+/**
+ * This class replays a file of ScenarioFileWriter: every call of getVector returns the next
+ * scenario of the file. The file is memory mapped, in windows of whole row groups of about 1 GB,
+ * so the normals are read from the page cache without any system call; a row group is decoded
+ * from its columns when the first of its scenarios is needed.
+ *
+ * The generator throws an IllegalStateException once all the scenarios were used, a
+ * simulation must not ask for more paths than were recorded. It is not thread safe.
+ * @author xiaog
+ *
+ */
+
+public class ScenarioFileReader implements BulkRandomVectorGenerator, Closeable {
+
+	private static final long WINDOW_SIZE = 1L << 30; // bytes mapped at once, rounded to whole groups
+
+	private FileChannel _channel;
+	private long _seed;
+	private int _steps;
+	private int _precision;
+	private int _rowGroup;
+	private long _count;
+	private MappedByteBuffer[] _windows;
+	private int _groupsPerWindow;
+	private long _scenario = 0; // index of the scenario returned by the next call of getVector
+	private long _group = -1; // row group decoded in _rows
+	private double[] _rows; // scenarios of the decoded group, one after the other
+	private double[] _vector;
+	private float[] _floatColumn; // one column of a group while it is decoded
+	private double[] _doubleColumn;
+
+	/**
+	 *
+	 * @param path a file written by ScenarioFileWriter
+	 * @throws IOException when the file cannot be read or is not a complete scenario file
+	 */
+	public ScenarioFileReader(Path path) throws IOException {
+		this._channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(ScenarioFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (this._channel.read(header, header.position()) < 0) {
+					break;
+				}
+			}
+			if (header.hasRemaining() || header.getInt(0) != ScenarioFileWriter.MAGIC) {
+				throw new IOException(path + " is not a scenario file");
+			}
+			if (header.getInt(4) != ScenarioFileWriter.VERSION) {
+				throw new IOException(path + " has the unsupported version " + header.getInt(4));
+			}
+			this._seed = header.getLong(8);
+			this._steps = header.getInt(16);
+			this._precision = header.getInt(20);
+			this._rowGroup = header.getInt(24);
+			this._count = header.getLong(32);
+			if (this._steps < 1 || this._rowGroup < 1 || this._count < 0
+					|| (this._precision != ScenarioFileWriter.FLOAT && this._precision != ScenarioFileWriter.DOUBLE)) {
+				throw new IOException(path + " has an invalid header");
+			}
+			long scenarioBytes = (long) this._steps * this._precision;
+			if (this._channel.size() != ScenarioFileWriter.HEADER_SIZE + this._count * scenarioBytes) {
+				throw new IOException(path + " is truncated or was not closed by its writer");
+			}
+
+			// Map whole groups per window, so a group never spans two windows
+			long groupBytes = this._rowGroup * scenarioBytes;
+			this._groupsPerWindow = (int) Math.max(1, WINDOW_SIZE / groupBytes);
+			long windowBytes = this._groupsPerWindow * groupBytes;
+			long dataBytes = this._count * scenarioBytes;
+			this._windows = new MappedByteBuffer[(int) ((dataBytes + windowBytes - 1) / windowBytes)];
+			for (int i_1 = 0; i_1 < this._windows.length; ++ i_1) {
+				long start = i_1 * windowBytes;
+				this._windows[i_1] = this._channel.map(FileChannel.MapMode.READ_ONLY,
+						ScenarioFileWriter.HEADER_SIZE + start, Math.min(windowBytes, dataBytes - start));
+				this._windows[i_1].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		} catch (IOException | RuntimeException e) {
+			this._channel.close();
+			throw e;
+		}
+		int groupRows = (int) Math.min(this._rowGroup, Math.max(this._count, 1));
+		this._rows = new double[groupRows * this._steps];
+		if (this._precision == ScenarioFileWriter.FLOAT) {
+			this._floatColumn = new float[groupRows];
+		} else {
+			this._doubleColumn = new double[groupRows];
+		}
+		this._vector = new double[this._steps];
+	}
+
+	// Modifiers
+	// Jump to a scenario, the next call of getVector returns it
+	public void setScenario(long scenario) {
+		if (scenario < 0 || scenario > this._count) {
+			throw new IllegalArgumentException("scenario must be in [0, " + this._count + "]");
+		}
+		this._scenario = scenario;
+	}
+
+	// Replay the file from its first scenario
+	public void rewind() {
+		this._scenario = 0;
+	}
+
+	// Getters
+	public long getSeed() {
+		return this._seed;
+	}
+
+	public int getSteps() {
+		return this._steps;
+	}
+
+	public int getPrecision() {
+		return this._precision;
+	}
+
+	public int getRowGroup() {
+		return this._rowGroup;
+	}
+
+	public long getCount() {
+		return this._count;
+	}
+
+	public long getScenario() {
+		return this._scenario;
+	}
+
+	public long getRemaining() {
+		return this._count - this._scenario;
+	}
+
+	/**
+	 *
+	 * @return the normals of the next scenario, the array is reused by the next call
+	 */
+	@Override
+	public double[] getVector() {
+		copyScenario(this._vector, 0);
+		return this._vector;
+	}
+
+	/**
+	 * Copy the next len / getSteps() scenarios, one after the other
+	 * @param out the array to be overwritten
+	 * @param off first index to fill
+	 * @param len number of normals, a multiple of the steps
+	 */
+	@Override
+	public void fill(double[] out, int off, int len) {
+		if (len % this._steps != 0) {
+			throw new IllegalArgumentException("len must be a multiple of the steps " + this._steps);
+		}
+		for (int i_1 = off; i_1 < off + len; i_1 += this._steps) {
+			copyScenario(out, i_1);
+		}
+	}
+
+	private void copyScenario(double[] out, int off) {
+		if (this._scenario >= this._count) {
+			throw new IllegalStateException("All the " + this._count + " scenarios of the file were used");
+		}
+		long group = this._scenario / this._rowGroup;
+		if (group != this._group) {
+			decode(group);
+		}
+		int row = (int) (this._scenario % this._rowGroup);
+		System.arraycopy(this._rows, row * this._steps, out, off, this._steps);
+		++ this._scenario;
+	}
+
+	// Turn the columns of a group into scenarios, reading the mapped columns in order
+	private void decode(long group) {
+		int rows = (int) Math.min(this._rowGroup, this._count - group * this._rowGroup);
+		ByteBuffer window = this._windows[(int) (group / this._groupsPerWindow)].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int start = (int) (group % this._groupsPerWindow) * this._rowGroup * this._steps * this._precision;
+		window.position(start);
+		if (this._precision == ScenarioFileWriter.FLOAT) {
+			// one bulk read per column, then the column is spread over the scenarios
+			FloatBuffer columns = window.asFloatBuffer();
+			for (int j = 0; j < this._steps; ++ j) {
+				columns.get(this._floatColumn, 0, rows);
+				for (int i_1 = 0; i_1 < rows; ++ i_1) {
+					this._rows[i_1 * this._steps + j] = this._floatColumn[i_1];
+				}
+			}
+		} else {
+			DoubleBuffer columns = window.asDoubleBuffer();
+			for (int j = 0; j < this._steps; ++ j) {
+				columns.get(this._doubleColumn, 0, rows);
+				for (int i_1 = 0; i_1 < rows; ++ i_1) {
+					this._rows[i_1 * this._steps + j] = this._doubleColumn[i_1];
+				}
+			}
+		}
+		this._group = group;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this._windows = new MappedByteBuffer[0];
+		this._channel.close();
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		// Record the scenarios once and price twice against them
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		int period = 252;
+		long seed = 20180401L;
+		int scenarios = 1 << 17;
+		Path path = Files.createTempFile("scenarios", ".mcsf");
+		try {
+			ScenarioFileWriter.record(path, new NormalRandomVectorGenerator(period, seed), seed, period, scenarios,
+					ScenarioFileWriter.FLOAT);
+			StdOut.println("Recorded " + scenarios + " scenarios in " + Files.size(path) + " bytes");
+			try (ScenarioFileReader reader = new ScenarioFileReader(path)) {
+				// every scenario gives an antithetic pair of paths
+				Simulation simulation = new Simulation(IBM_as, period, 0.96, 0.05);
+				simulation.setRandomVectorGenerator(reader);
+				StdOut.println("First replay: " + simulation.simulatePaths(2 * scenarios));
+				reader.rewind();
+				StdOut.println("Second replay: " + simulation.simulatePaths(2 * scenarios));
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+}
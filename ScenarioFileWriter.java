@@ -0,0 +1,212 @@
+package MonteCarlo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+/**
+ * This class writes scenarios, the normal vectors of the paths, to a binary file that
+ * ScenarioFileReader replays, so a book can be repriced against exactly the same paths.
+ *
+ * The file is little endian. The header takes 64 bytes:
+ *   0  int   magic "MCSF"
+ *   4  int   version
+ *   8  long  seed the normals were generated with
+ *   16 int   steps, the normals of one scenario
+ *   20 int   precision, 4 for float and 8 for double
+ *   24 int   scenarios per row group
+ *   32 long  count of scenarios
+ * The scenarios follow in row groups; within a group the values are stored column by column,
+ * step 0 of all the scenarios of the group, then step 1, and so on. Every group is full but
+ * the last one. The count is written by close(), a file that was not closed holds no scenario.
+ * @author xiaog
+ *
+ */
+
+public class ScenarioFileWriter implements Closeable {
+
+	public static final int MAGIC = 0x4653434D; // "MCSF" in little endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+	public static final int FLOAT = 4;
+	public static final int DOUBLE = 8;
+	public static final int DEFAULT_ROW_GROUP = 4096;
+
+	private FileChannel _channel;
+	private long _seed;
+	private int _steps;
+	private int _precision;
+	private int _rowGroup;
+	private long _count = 0;
+	private double[] _group; // the scenarios of the current group, column by column
+	private int _rows = 0; // scenarios in the current group
+	private ByteBuffer _bytes; // encoded group
+
+	public ScenarioFileWriter(Path path, long seed, int steps, int precision) throws IOException {
+		this(path, seed, steps, precision, DEFAULT_ROW_GROUP);
+	}
+
+	/**
+	 *
+	 * @param path the file, replaced when it exists
+	 * @param seed recorded in the header
+	 * @param steps normals per scenario
+	 * @param precision FLOAT or DOUBLE
+	 * @param rowGroup scenarios per row group
+	 * @throws IOException
+	 */
+	public ScenarioFileWriter(Path path, long seed, int steps, int precision, int rowGroup) throws IOException {
+		if (steps < 1 || rowGroup < 1) {
+			throw new IllegalArgumentException("steps and rowGroup must be positive");
+		}
+		if (precision != FLOAT && precision != DOUBLE) {
+			throw new IllegalArgumentException("precision must be 4 (float) or 8 (double)");
+		}
+		if ((long) rowGroup * steps * precision > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A row group must be smaller than 2 GB");
+		}
+		this._seed = seed;
+		this._steps = steps;
+		this._precision = precision;
+		this._rowGroup = rowGroup;
+		this._group = new double[rowGroup * steps];
+		this._bytes = ByteBuffer.allocateDirect(rowGroup * steps * precision).order(ByteOrder.LITTLE_ENDIAN);
+		this._channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		writeHeader();
+		this._channel.position(HEADER_SIZE);
+	}
+
+	// Getters
+	public long getSeed() {
+		return this._seed;
+	}
+
+	public int getSteps() {
+		return this._steps;
+	}
+
+	public int getPrecision() {
+		return this._precision;
+	}
+
+	public long getCount() {
+		return this._count;
+	}
+
+	/**
+	 * Append one scenario
+	 * @param vector the normals of the scenario, of length steps
+	 * @throws IOException
+	 */
+	public void write(double[] vector) throws IOException {
+		if (vector.length != this._steps) {
+			throw new IllegalArgumentException("The scenario must have " + this._steps + " normals");
+		}
+		for (int j = 0; j < this._steps; ++ j) {
+			this._group[j * this._rowGroup + this._rows] = vector[j];
+		}
+		added();
+	}
+
+	/**
+	 * Append the remaining floats of a buffer as consecutive scenarios, e.g. the normals of
+	 * CL_Generation through FloatBuffer.wrap or CL_HostBuffer.asFloatBuffer
+	 * @param normals a multiple of steps floats, consumed by the call
+	 * @throws IOException
+	 */
+	public void write(FloatBuffer normals) throws IOException {
+		if (normals.remaining() % this._steps != 0) {
+			throw new IllegalArgumentException("The normals must be a multiple of " + this._steps);
+		}
+		while (normals.hasRemaining()) {
+			for (int j = 0; j < this._steps; ++ j) {
+				this._group[j * this._rowGroup + this._rows] = normals.get();
+			}
+			added();
+		}
+	}
+
+	/**
+	 * Write the scenarios of a generator to a file
+	 * @param path the file
+	 * @param generator e.g. a NormalRandomVectorGenerator
+	 * @param seed the seed of the generator, recorded in the header
+	 * @param steps normals per vector of the generator
+	 * @param count number of scenarios
+	 * @param precision FLOAT or DOUBLE
+	 * @throws IOException
+	 */
+	public static void record(Path path, RandomVectorGenerator generator, long seed, int steps, long count,
+			int precision) throws IOException {
+		try (ScenarioFileWriter writer = new ScenarioFileWriter(path, seed, steps, precision)) {
+			for (long i_1 = 0; i_1 < count; ++ i_1) {
+				writer.write(generator.getVector());
+			}
+		}
+	}
+
+	// Count a scenario, and write the group when it is full
+	private void added() throws IOException {
+		++ this._count;
+		if (++ this._rows == this._rowGroup) {
+			flushGroup();
+		}
+	}
+
+	// Encode the current group column by column, without the rows that are not filled
+	private void flushGroup() throws IOException {
+		if (this._rows == 0) {
+			return;
+		}
+		this._bytes.clear();
+		for (int j = 0; j < this._steps; ++ j) {
+			int column = j * this._rowGroup;
+			for (int i_1 = 0; i_1 < this._rows; ++ i_1) {
+				if (this._precision == FLOAT) {
+					this._bytes.putFloat((float) this._group[column + i_1]);
+				} else {
+					this._bytes.putDouble(this._group[column + i_1]);
+				}
+			}
+		}
+		this._bytes.flip();
+		while (this._bytes.hasRemaining()) {
+			this._channel.write(this._bytes);
+		}
+		this._rows = 0;
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, MAGIC);
+		header.putInt(4, VERSION);
+		header.putLong(8, this._seed);
+		header.putInt(16, this._steps);
+		header.putInt(20, this._precision);
+		header.putInt(24, this._rowGroup);
+		header.putLong(32, this._count);
+		while (header.hasRemaining()) {
+			this._channel.write(header, header.position());
+		}
+	}
+
+	// Write the last group and the count
+	@Override
+	public void close() throws IOException {
+		if (!this._channel.isOpen()) {
+			return;
+		}
+		try {
+			flushGroup();
+			writeHeader();
+		} finally {
+			this._channel.close();
+		}
+	}
+
+}
@@ -1,137 +1,599 @@
-package MonteCarlo;
-
-
-public class Simulation {
-	
-	@SuppressWarnings("rawtypes")
-	
-	// Define member data
-	protected Option _option;
-	protected double _startPrice;
-	protected double _strikePrice;
-	protected double _probability;
-	protected double _interestRate;
-	protected double _error;
-	protected String _type;
-	protected int _length = 252;
-	protected int _seed;
-	protected int _num_trial = 0;
-	
-	// Default constructor
-	public Simulation() {}
-	
-	// Constructor receives parameters
-	public Simulation(Option<?,?> option, int length, double probability, double error) {
-		this._startPrice = option.getStartPrice(); // initial underlying price
-		this._strikePrice = option.getStrikePrice();  // strike price of the option
-		this._probability = probability;  // p-value (threshold)
-		this._error = error;  // two sided statistics error
-		this._length = length;  // time period
-		this._type = option.getPayOutType();  // payout type "European" or "Asian"
-		this._option = option;
-		this._interestRate = option.getInterestRate();  // Interest rate
-
-	}
-	
-
-
-	public double simulate() {
-		// compute the stopping criteria 
-		StatsCollector collector = new StatsCollector();
-		// two-sided criteria (z score)
-		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
-		
-		double error = Double.MAX_VALUE; 
-		
-		// While error is greater than 0 and error 
-
-		while (error > this._error || error == 0.0) {
-			
-			// generate the standard normal random samples.
-			NormalRandomVectorGenerator normpath = new NormalRandomVectorGenerator(this._length);
-			// generate the stock path based on the standard normal random samples
-			StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
-			// trial plus 1
-			++ this._num_trial;
-			// generate payout class
-			CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
-			// compute the profit
-			double profit1 = payout.getPayout(BrownianPath);
-			// adding the new data to the collector
-			collector.update(profit1);
-			// compute the error (In this case, we assume that there exists cases such that error is not zero)
-			error = criteria * collector.getStd() / Math.sqrt(this._num_trial);
-			++ this._num_trial;
-			// Call the second time to use the antithetic paths
-			double profit2 = payout.getPayout(BrownianPath);
-			// update the statistics
-			collector.update(profit2);
-			error = criteria * collector.getStd() / Math.sqrt(this._num_trial);
-			
-		}
-        double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
-		StdOut.println("Final option price: " + price);
-		return price;
-	}
-	
-	/**
-	 * 
-	 * @param t
-	 * @return the rational approximation of z-score
-	 */
-	double RationalApproximation( double t )
-	{
-
-	    double c[] = {2.515517, 0.802853, 0.010328};
-	    double d[] = {1.432788, 0.189269, 0.001308};
-	    return t - ((c[2]*t + c[1])*t + c[0]) /
-	                (((d[2]*t + d[1])*t + d[0])*t + 1.0);
-	}
-	/**
-	 * 
-	 * @param p
-	 * @return compute the two-sided z-score of normal distribution
-	 */
-	double NormalCDFInverse(double p)
-	{
-	    if (p <= 0.0 || p >= 1.0)
-	    {
-	    	throw new IllegalArgumentException("p must be between 0.0 and 1.0");
-	    }
-	 
-	    // See article above for explanation of this section.
-	    if (p < 0.5)
-	    {
-	        return -RationalApproximation( Math.sqrt(-2.0 * Math.log(p)) );
-	    }
-	    else
-	    {
-	        // F^-1(p) = G^-1(1-p)
-	        return RationalApproximation( Math.sqrt(-2.0 * Math.log(1-p)) );
-	    }
-	}
-	
-	public static void main(String[] args) {
-		
-		// Define two objects
-		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
-		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
-		// p-value, error and length
-		double probability = 0.96;		
-		double error = 0.1;
-		int period = 252;
-		// Simulate European option
-        StdOut.println("Case 1 European Option Price:");
-		Simulation IBM_european = new Simulation(IBM_eu, period, probability, error/2);
-		IBM_european.simulate();
-		
-		// Simulate Asian option
-        StdOut.println("Case 2 Asian Option Price:");
-        Simulation IBM_asian = new Simulation(IBM_as, period, probability, error/2);
-		IBM_asian.simulate();
-
-	}
-
-
-
+package MonteCarlo;
+
+
+public class Simulation {
+	
+	@SuppressWarnings("rawtypes")
+	
+	// Define member data
+	protected Option _option;
+	protected double _startPrice;
+	protected double _strikePrice;
+	protected double _probability;
+	protected double _interestRate;
+	protected double _error;
+	protected String _type;
+	protected int _length = 252;
+	protected int _seed;
+	protected long _num_trial = 0;
+	protected int _blockSize = 256; // number of paths generated and priced together
+	protected boolean _streaming = false; // price from path statistics instead of stored paths
+	protected RandomVectorGenerator _generator; // source of the normal vectors, pseudo-random when not set
+	protected int _minReplicates = 8; // the std of the replicate means needs a few replicates to be trusted
+	protected int _minWeightedTrials = 1000; // paths before an estimated coefficient or weighted std is trusted
+	protected double _driftShift = Double.NaN; // importance sampling drift per step, chosen from the strike when NaN
+	
+	// Default constructor
+	public Simulation() {}
+	
+	// Constructor receives parameters
+	public Simulation(Option<?,?> option, int length, double probability, double error) {
+		this._startPrice = option.getStartPrice(); // initial underlying price
+		this._strikePrice = option.getStrikePrice();  // strike price of the option
+		this._probability = probability;  // p-value (threshold)
+		this._error = error;  // two sided statistics error
+		this._length = length;  // time period
+		this._type = option.getPayOutType();  // payout type "European" or "Asian"
+		this._option = option;
+		this._interestRate = option.getInterestRate();  // Interest rate
+
+	}
+	
+
+
+	// Modifiers
+	public void setBlockSize(int blockSize) {
+		if (blockSize < 2 || blockSize % 2 != 0) {
+			throw new IllegalArgumentException("blockSize must be a positive even number");
+		}
+		this._blockSize = blockSize;
+	}
+
+	public int getBlockSize() {
+		return this._blockSize;
+	}
+
+	// In streaming mode every path is reduced to its statistics while it is generated
+	public void setStreaming(boolean streaming) {
+		this._streaming = streaming;
+	}
+
+	public boolean getStreaming() {
+		return this._streaming;
+	}
+
+	// Use another generator of normal vectors, e.g. a quasi-random one
+	public void setRandomVectorGenerator(RandomVectorGenerator generator) {
+		this._generator = generator;
+	}
+
+	public RandomVectorGenerator getRandomVectorGenerator() {
+		return this._generator;
+	}
+
+	// Drift added to every normal in importance sampling, NaN to choose it from the strike
+	public void setDriftShift(double driftShift) {
+		this._driftShift = driftShift;
+	}
+
+	/**
+	 * The drift moves the median of the payout variable to the strike: the terminal price for
+	 * the European call, the average price for the Asian call. In the money options keep a zero drift.
+	 * @return the drift per step used by simulateImportanceSampling
+	 */
+	public double getDriftShift() {
+		if (!Double.isNaN(this._driftShift)) {
+			return this._driftShift;
+		}
+		double sigma = this._option.getVolatility();
+		double mu = this._interestRate - sigma * sigma / 2.0;
+		double logMoneyness = Math.log(this._strikePrice / this._startPrice);
+		double drift;
+		if ("Asian".equals(this._type)) {
+			// the mean log price of the path is ln S0 + (mu + sigma * drift) * n / 2
+			drift = (2.0 * logMoneyness / this._length - mu) / sigma;
+		} else {
+			drift = (logMoneyness / this._length - mu) / sigma;
+		}
+		return Math.max(drift, 0.0);
+	}
+
+	// The generator set by the user, or a new xoshiro256** one with ziggurat normals
+	protected RandomVectorGenerator newGenerator() {
+		if (this._generator != null) {
+			return this._generator;
+		}
+		return new Xoshiro256RandomVectorGenerator(this._length);
+	}
+
+	public double simulate() {
+		// compute the stopping criteria 
+		StatsCollector collector = new StatsCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		
+		double error = Double.MAX_VALUE; 
+		
+		// generate the standard normal random samples.
+		RandomVectorGenerator normpath = newGenerator();
+		// generate the stock paths based on the standard normal random samples, consecutive
+		// paths of a block are antithetic pairs
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
+		// generate payout class, the payout type is resolved once here
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PathBlock block = this._streaming ? null : new PathBlock(this._blockSize, this._length);
+		PathStatistics statistics = new PathStatistics();
+		double[] profits = new double[this._blockSize];
+		
+		// While error is greater than 0 and error 
+
+		while (error > this._error || error == 0.0) {
+			
+			priceBlock(BrownianPath, payout, block, statistics, profits);
+			
+			for (int i_1 = 0; i_1 < this._blockSize && (error > this._error || error == 0.0); i_1 += 2) {
+				// trial plus 2, the path and its antithetic path
+				this._num_trial += 2;
+				// adding the new data to the collector
+				collector.update(profits[i_1]);
+				collector.update(profits[i_1 + 1]);
+				// compute the error (In this case, we assume that there exists cases such that error is not zero)
+				error = criteria * collector.getStd() / Math.sqrt(this._num_trial);
+			}
+			
+		}
+        double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+
+	/**
+	 * Price with a fixed number of paths instead of the stopping rule, e.g. to measure the cost per path
+	 * @param paths number of paths, rounded up to whole blocks
+	 * @return the discounted option price
+	 */
+	public double simulatePaths(int paths) {
+		if (paths < 1) {
+			throw new IllegalArgumentException("paths must be positive");
+		}
+		StatsCollector collector = new StatsCollector();
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, newGenerator());
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PathBlock block = this._streaming ? null : new PathBlock(this._blockSize, this._length);
+		PathStatistics statistics = new PathStatistics();
+		double[] profits = new double[this._blockSize];
+
+		runPaths(paths, BrownianPath, payout, block, statistics, profits, collector);
+		this._num_trial = collector.getCount();
+		return collector.getMean() * Math.exp(-this._interestRate * this._length);
+	}
+
+	/**
+	 * Price with a pilot run: the pilot estimates the standard deviation and hence the number of
+	 * paths needed for the target error, the remaining paths then run in chunks and convergence
+	 * is only checked between chunks. The chunks can be batched and parallelized.
+	 * @param pilotSize number of paths of the pilot run
+	 * @param chunkSize number of paths between two convergence checks
+	 * @return the discounted option price
+	 */
+	public double simulatePlanned(int pilotSize, int chunkSize) {
+		if (pilotSize < 2 || chunkSize < 1) {
+			throw new IllegalArgumentException("pilotSize must be at least 2 and chunkSize positive");
+		}
+		StatsCollector collector = new StatsCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		
+		RandomVectorGenerator normpath = newGenerator();
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PathBlock block = this._streaming ? null : new PathBlock(this._blockSize, this._length);
+		PathStatistics statistics = new PathStatistics();
+		double[] profits = new double[this._blockSize];
+		
+		// pilot run
+		runPaths(pilotSize, BrownianPath, payout, block, statistics, profits, collector);
+		double error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+		
+		while (error > this._error || error == 0.0) {
+			// plan the number of paths from the current estimate of the std, a zero std
+			// (e.g. no path in the money yet) gives one more chunk
+			double required = Math.pow(criteria * collector.getStd() / this._error, 2);
+			double chunks = Math.max(Math.ceil((required - collector.getCount()) / chunkSize), 1.0);
+			for (int i_1 = 0; i_1 < chunks; ++ i_1) {
+				runPaths(chunkSize, BrownianPath, payout, block, statistics, profits, collector);
+			}
+			error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+		}
+		this._num_trial = collector.getCount();
+		
+        double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+	
+	/**
+	 * Price with independent replicates: every replicate restarts the generator, e.g. the Sobol
+	 * sequence with a new scrambling or a new Latin hypercube batch, and the stopping rule is
+	 * applied to the i.i.d. replicate means.
+	 * @param generator the replicate generator, of the same length as the simulation
+	 * @param pathsPerReplicate number of paths of a replicate, a power of two is best for Sobol,
+	 *        twice the batch samples for Latin hypercube
+	 * @return the discounted option price
+	 */
+	public double simulateReplicates(ReplicateRandomVectorGenerator generator, int pathsPerReplicate) {
+		if (generator.getLength() != this._length) {
+			throw new IllegalArgumentException("the generator length must be the simulation length");
+		}
+		StatsCollector collector = new StatsCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		
+		double error = Double.MAX_VALUE; 
+		
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PathBlock block = this._streaming ? null : new PathBlock(this._blockSize, this._length);
+		PathStatistics statistics = new PathStatistics();
+		double[] profits = new double[this._blockSize];
+		StatsCollector replicate = new StatsCollector();
+		long paths = 0;
+		
+		while (error > this._error || error == 0.0 || collector.getCount() < this._minReplicates) {
+			// a new path object restarts the antithetic pairs with the sequence
+			generator.nextReplicate();
+			StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, generator);
+			replicate.reset();
+			runPaths(pathsPerReplicate, BrownianPath, payout, block, statistics, profits, replicate);
+			paths += replicate.getCount();
+			
+			collector.update(replicate.getMean());
+			error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+		}
+		this._num_trial = paths;
+		
+        double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+	
+	/**
+	 * Price with a control variate whose mean is known exactly: the terminal price for the
+	 * European call, the geometric-average call for the Asian call. The coefficient is estimated
+	 * online and the stopping rule uses the std of the adjusted payouts.
+	 * @return the discounted option price
+	 */
+	public double simulateControlVariate() {
+		ControlVariateCollector collector = new ControlVariateCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		
+		double error = Double.MAX_VALUE; 
+		
+		RandomVectorGenerator normpath = newGenerator();
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		boolean asian = payout.getPayoutType() == CallPayOut.TYPE_ASIAN;
+		if (!asian && payout.getPayoutType() != CallPayOut.TYPE_EUROPEAN) {
+			throw new IllegalArgumentException("The type of the options is not included: " + this._type);
+		}
+		double controlMean = asian ? geometricAsianCall() : this._startPrice * Math.exp(this._interestRate * this._length);
+		
+		// the two paths of an antithetic pair are correlated, so the collector gets one sample
+		// per pair, the averages of the payouts and of the controls
+		while (error > this._error || error == 0.0 || 2 * collector.getCount() < this._minWeightedTrials) {
+			double pairPayout = 0.0;
+			double pairControl = 0.0;
+			for (int i_1 = 0; i_1 < 2; ++ i_1) {
+				PricePath path = BrownianPath.getPricePath();
+				pairControl += asian ? geometricAveragePayout(path) : path.getTerminalPrice();
+				pairPayout += payout.getPayout(path);
+			}
+			collector.update(pairPayout / 2.0, pairControl / 2.0);
+			error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+		}
+		this._num_trial = 2 * collector.getCount();
+		
+        double price = (collector.getMean(controlMean)) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+	
+	/**
+	 * Price with importance sampling: the normals are drawn with a positive drift so that more
+	 * paths end in the money, and every payout is weighted by the likelihood ratio.
+	 * @return the discounted option price
+	 */
+	public double simulateImportanceSampling() {
+		StatsCollector collector = new StatsCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+		
+		double error = Double.MAX_VALUE; 
+		
+		// the shift is applied after the antithetic flip, so both paths of a pair are shifted
+		DriftShiftedRandomVectorGenerator normpath = new DriftShiftedRandomVectorGenerator(
+				new AntiTheticRandomVectorGenerator(newGenerator()), getDriftShift());
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PricePath path = new PricePath(this._length);
+		
+		while (error > this._error || error == 0.0 || collector.getCount() < this._minWeightedTrials) {
+			// the path and its antithetic path
+			for (int i_1 = 0; i_1 < 2; ++ i_1) {
+				BrownianPath.fillPricePath(normpath.getVector(), path);
+				collector.update(payout.getPayout(path) * normpath.getLikelihoodRatio());
+			}
+			error = criteria * collector.getStd() / Math.sqrt(collector.getCount());
+		}
+		this._num_trial = collector.getCount();
+		
+        double price = (collector.getMean()) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+	
+	/**
+	 * Price with the terminal value of the Brownian motion stratified into equally likely strata.
+	 * The estimate is the average of the stratum means and its error only contains the variance
+	 * within the strata. The antithetic path of a path in stratum j lies in stratum strata - 1 - j.
+	 * @param strata number of strata
+	 * @return the discounted option price
+	 */
+	public double simulateStratified(int strata) {
+		StatsCollector[] collectors = new StatsCollector[strata];
+		for (int i_1 = 0; i_1 < strata; ++ i_1) {
+			collectors[i_1] = new StatsCollector();
+		}
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+
+		double error = Double.MAX_VALUE;
+		long count = 0;
+
+		StratifiedRandomVectorGenerator generator = new StratifiedRandomVectorGenerator(this._length, strata);
+		AntiTheticRandomVectorGenerator normpath = new AntiTheticRandomVectorGenerator(generator);
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, generator);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PricePath path = new PricePath(this._length);
+
+		while (error > this._error || error == 0.0 || count < this._minWeightedTrials) {
+			// one full cycle, two paths in every stratum
+			for (int i_1 = 0; i_1 < strata; ++ i_1) {
+				BrownianPath.fillPricePath(normpath.getVector(), path);
+				int stratum = generator.getStratum();
+				collectors[stratum].update(payout.getPayout(path));
+				BrownianPath.fillPricePath(normpath.getVector(), path);
+				collectors[strata - 1 - stratum].update(payout.getPayout(path));
+			}
+			count += 2 * strata;
+
+			double variance = 0.0;
+			for (int i_1 = 0; i_1 < strata; ++ i_1) {
+				variance += collectors[i_1].getVariance() / collectors[i_1].getCount();
+			}
+			error = criteria * Math.sqrt(variance) / strata;
+		}
+		this._num_trial = count;
+
+		double mean = 0.0;
+		for (int i_1 = 0; i_1 < strata; ++ i_1) {
+			mean += collectors[i_1].getMean();
+		}
+        double price = (mean / strata) * Math.exp(-this._interestRate * this._length);
+		StdOut.println("Final option price: " + price);
+		return price;
+	}
+
+	/**
+	 * Price the option together with its Greeks from the same paths. Delta and vega are pathwise
+	 * derivatives of the payout. For the European call gamma is the derivative of the pathwise
+	 * delta by likelihood ratio, the delta times the score of the start price in the terminal
+	 * value. The average of the Asian call also holds S0 itself, outside of any step, so no score
+	 * of the steps accounts for it; its gamma is instead the exact gamma of the payout conditional
+	 * on the steps 2 to n, the first step being integrated out in closed form, which keeps the
+	 * kink of the payout and the S0 term without bias. The stopping rule is the one of the price;
+	 * the Greeks report their own half widths, which may be wider.
+	 * @return the price and the Greeks with their confidence half widths
+	 */
+	public Greeks simulateGreeks() {
+		StatsCollector priceCollector = new StatsCollector();
+		StatsCollector deltaCollector = new StatsCollector();
+		StatsCollector gammaCollector = new StatsCollector();
+		StatsCollector vegaCollector = new StatsCollector();
+		// two-sided criteria (z score)
+		double criteria = NormalCDFInverse(_probability + (1 - _probability) / 2.0);
+
+		double error = Double.MAX_VALUE;
+
+		RandomVectorGenerator normpath = new AntiTheticRandomVectorGenerator(newGenerator());
+		StockPathExponentialBrownian BrownianPath = new StockPathExponentialBrownian(this._option, normpath);
+		CallPayOut payout = new CallPayOut(this._option.getStrikePrice(), this._option.getPayOutType());
+		PricePath path = new PricePath(this._length);
+		boolean asian = payout.getPayoutType() == CallPayOut.TYPE_ASIAN;
+
+		double sigma = this._option.getVolatility();
+		double start = this._startPrice;
+		int n = this._length;
+		// European mixed estimator: gamma = E[delta * (zeta / s - 1) / S0], delta the pathwise
+		// delta, which is proportional to 1 / S0, and s the std of the terminal log return
+		double logStd = sigma * Math.sqrt(n);
+
+		while (error > this._error || error == 0.0) {
+			// the path and its antithetic path
+			for (int i_1 = 0; i_1 < 2; ++ i_1) {
+				double[] normals = normpath.getVector();
+				double[] prices = BrownianPath.fillPricePath(normals, path).getPriceArray();
+				double value = payout.getPayout(path);
+
+				double delta = 0.0;
+				double vega = 0.0;
+				double gamma = 0.0;
+				if (asian) {
+					double average = 0.0;
+					for (int i_2 = 0; i_2 <= n; ++ i_2) {
+						average += prices[i_2];
+					}
+					// given the steps 2 to n, the average is S0 / (n + 1) + b * exp(sigma * Z1), so the
+					// payout is a call of strike K - S0 / (n + 1) on a lognormal, whose gamma in S0
+					// is pdf(d) * K^2 / (sigma * S0^2 * (K - S0 / (n + 1)))
+					double strike = this._strikePrice - start / (n + 1);
+					if (strike > 0.0) {
+						double forward = (average - start) / (n + 1) * Math.exp(-sigma * normals[0]);
+						double d = Math.log(forward / strike) / sigma;
+						gamma = NormalDistribution.pdf(d) * this._strikePrice * this._strikePrice
+								/ (sigma * start * start * strike);
+					}
+					average /= n + 1;
+					if (average > this._strikePrice) {
+						// dS_i / dsigma = S_i * (W_i - i * sigma), W_i the Brownian motion at step i
+						double brownian = 0.0;
+						for (int i_2 = 1; i_2 <= n; ++ i_2) {
+							brownian += normals[i_2 - 1];
+							vega += prices[i_2] * (brownian - i_2 * sigma);
+						}
+						vega /= n + 1;
+						delta = average / start;
+					}
+				} else {
+					double brownian = 0.0;
+					for (int i_2 = 0; i_2 < n; ++ i_2) {
+						brownian += normals[i_2];
+					}
+					if (prices[n] > this._strikePrice) {
+						vega = prices[n] * (brownian - n * sigma);
+						delta = prices[n] / start;
+					}
+					gamma = delta * (brownian / Math.sqrt(n) / logStd - 1.0) / start;
+				}
+
+				priceCollector.update(value);
+				deltaCollector.update(delta);
+				vegaCollector.update(vega);
+				gammaCollector.update(gamma);
+			}
+			error = criteria * priceCollector.getStd() / Math.sqrt(priceCollector.getCount());
+		}
+		this._num_trial = priceCollector.getCount();
+
+		double discount = Math.exp(-this._interestRate * this._length);
+		double width = criteria / Math.sqrt(priceCollector.getCount()) * discount;
+		Greeks greeks = new Greeks(priceCollector.getMean() * discount, deltaCollector.getMean() * discount,
+				gammaCollector.getMean() * discount, vegaCollector.getMean() * discount,
+				priceCollector.getStd() * width, deltaCollector.getStd() * width,
+				gammaCollector.getStd() * width, vegaCollector.getStd() * width);
+		StdOut.println("Final option price: " + greeks.getPrice());
+		return greeks;
+	}
+
+	// Payout of the call on the geometric average of the path, the control of the Asian call
+	private double geometricAveragePayout(PricePath path) {
+		double[] prices = path.getPriceArray();
+		double logSum = 0.0;
+		for (int i_1 = 0; i_1 <= path.getLength(); ++ i_1) {
+			logSum += Math.log(prices[i_1]);
+		}
+		return Math.max(Math.exp(logSum / (path.getLength() + 1)) - this._strikePrice, 0.0);
+	}
+	
+	/**
+	 * The log of the geometric average of S_0, ..., S_n is normal with mean ln S0 + mu n / 2 and
+	 * variance sigma^2 n (2n + 1) / (6 (n + 1)), where mu = r - sigma^2 / 2 per step.
+	 * @return the undiscounted price of the call on the geometric average
+	 */
+	private double geometricAsianCall() {
+		double sigma = this._option.getVolatility();
+		double n = this._length;
+		double mean = Math.log(this._startPrice) + (this._interestRate - sigma * sigma / 2.0) * n / 2.0;
+		double std = sigma * Math.sqrt(n * (2.0 * n + 1.0) / (6.0 * (n + 1.0)));
+		double d1 = (mean - Math.log(this._strikePrice) + std * std) / std;
+		double d2 = d1 - std;
+		return Math.exp(mean + std * std / 2.0) * NormalDistribution.cdf(d1) - this._strikePrice * NormalDistribution.cdf(d2);
+	}
+	
+	// Price the next block of paths into profits, with stored paths or in streaming mode
+	protected void priceBlock(StockPathExponentialBrownian path, CallPayOut payout, PathBlock block,
+			PathStatistics statistics, double[] profits) {
+		if (this._streaming) {
+			// price every path from its statistics, no path is stored
+			for (int i_1 = 0; i_1 < this._blockSize; ++ i_1) {
+				profits[i_1] = payout.getPayout(path.generatePathStatistics(statistics));
+			}
+		} else {
+			// price a whole block of paths at once
+			path.fillPathBlock(block);
+			payout.getPayouts(block, profits);
+		}
+	}
+	
+	// Add at least count paths to the collector, rounded up to whole blocks
+	private void runPaths(int count, StockPathExponentialBrownian path, CallPayOut payout, PathBlock block,
+			PathStatistics statistics, double[] profits, StatsCollector collector) {
+		for (int done = 0; done < count; done += this._blockSize) {
+			priceBlock(path, payout, block, statistics, profits);
+			for (int i_1 = 0; i_1 < this._blockSize; ++ i_1) {
+				collector.update(profits[i_1]);
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param t
+	 * @return the rational approximation of z-score
+	 */
+	double RationalApproximation( double t )
+	{
+
+	    double c[] = {2.515517, 0.802853, 0.010328};
+	    double d[] = {1.432788, 0.189269, 0.001308};
+	    return t - ((c[2]*t + c[1])*t + c[0]) /
+	                (((d[2]*t + d[1])*t + d[0])*t + 1.0);
+	}
+	/**
+	 * 
+	 * @param p
+	 * @return compute the two-sided z-score of normal distribution
+	 */
+	double NormalCDFInverse(double p)
+	{
+	    if (p <= 0.0 || p >= 1.0)
+	    {
+	    	throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+	    }
+	 
+	    // See article above for explanation of this section.
+	    if (p < 0.5)
+	    {
+	        return -RationalApproximation( Math.sqrt(-2.0 * Math.log(p)) );
+	    }
+	    else
+	    {
+	        // F^-1(p) = G^-1(1-p)
+	        return RationalApproximation( Math.sqrt(-2.0 * Math.log(1-p)) );
+	    }
+	}
+	
+	public static void main(String[] args) {
+		
+		// Define two objects
+		Option<Integer, Integer> IBM_eu = new Option<Integer, Integer>("IBM","European",0.0001,152.35,0.01,165);
+		Option<Integer, Integer> IBM_as = new Option<Integer, Integer>("IBM","Asian",0.0001,152.35,0.01,164);
+		// p-value, error and length
+		double probability = 0.96;		
+		double error = 0.1;
+		int period = 252;
+		// Simulate European option
+        StdOut.println("Case 1 European Option Price:");
+		Simulation IBM_european = new Simulation(IBM_eu, period, probability, error/2);
+		IBM_european.simulate();
+		
+		// Simulate Asian option
+        StdOut.println("Case 2 Asian Option Price:");
+        Simulation IBM_asian = new Simulation(IBM_as, period, probability, error/2);
+		IBM_asian.simulate();
+
+	}
+
+
+
 }
\ No newline at end of file
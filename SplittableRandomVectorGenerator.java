@@ -0,0 +1,38 @@
+package MonteCarlo;
+
+import java.util.SplittableRandom;
+/**
+ * Normal vectors from java.util.SplittableRandom, through the ziggurat sampler. split() gives
+ * an independent generator for another thread.
+ * @author xiaog
+ *
+ */
+
+public class SplittableRandomVectorGenerator extends ZigguratRandomVectorGenerator {
+
+	private SplittableRandom _random;
+
+	public SplittableRandomVectorGenerator(int length) {
+		this(length, new SplittableRandom());
+	}
+
+	public SplittableRandomVectorGenerator(int length, long seed) {
+		this(length, new SplittableRandom(seed));
+	}
+
+	private SplittableRandomVectorGenerator(int length, SplittableRandom random) {
+		super(length);
+		this._random = random;
+	}
+
+	// A new generator whose numbers are independent of this one
+	public SplittableRandomVectorGenerator split() {
+		return new SplittableRandomVectorGenerator(this._length, this._random.split());
+	}
+
+	@Override
+	protected long nextLong() {
+		return this._random.nextLong();
+	}
+
+}
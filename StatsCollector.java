@@ -1,54 +1,124 @@
-package MonteCarlo;
-
-import java.util.ArrayList;
-/**
- * This class is used to update the mean and std for the price list when a new data is avaiable.
- * @author xiaog
- *
- */
-
-public class StatsCollector {
-	
-	private ArrayList<Double> _pricelist;
-	private double _mean ; 
-	private double _secondMoment ;
-	private double _std ; // standard deviation
-	
-
-	public StatsCollector() {
-		this._pricelist = new ArrayList<Double>();
-	}
-	
-	// Add the data to the existing data array
-	public void update(double data) {
-		this._pricelist.add(data);		
-		int size = this._pricelist.size();
-		
-		if(size > 1) {
-			this._mean = ((size - 1.0) * _mean + data) / size;
-			this._secondMoment = ((size - 1.0) * _secondMoment + data * data) / size;
-			this._std = Math.sqrt(_secondMoment * size / (size - 1)- _mean * _mean * size / (size - 1));
-		} else {
-		this._mean = data;
-		this._secondMoment =  data * data;
-		this._std = data;
-		}
-	}
-	
-	// Getters.
-	public double getStd() {
-		return this._std;
-	}
-	
-    // Get means
-	public double getMean() {
-		return this._mean;
-	}
-	
-	// get count
-	public int getCount() {
-		return this._pricelist.size();
-	}
-
-}
-
+package MonteCarlo;
+
+/**
+ * This class is used to update the mean and std for the price list when a new data is avaiable.
+ * It keeps a constant amount of state (Welford's update), so no sample is stored, and two
+ * collectors can be merged exactly, e.g. the partial results of several threads or batches.
+ * @author xiaog
+ *
+ */
+
+public class StatsCollector {
+
+	private long _count;
+	private double _mean ;
+	private double _m2 ; // sum of squared deviations from the mean
+	private double _min = Double.POSITIVE_INFINITY;
+	private double _max = Double.NEGATIVE_INFINITY;
+
+
+	public StatsCollector() {
+	}
+
+	// Add the data to the existing statistics
+	public void update(double data) {
+		++ this._count;
+		double delta = data - this._mean;
+		this._mean += delta / this._count;
+		this._m2 += delta * (data - this._mean);
+
+		if (data < this._min) {
+			this._min = data;
+		}
+		if (data > this._max) {
+			this._max = data;
+		}
+	}
+
+	/**
+	 * Combine the statistics of another collector into this one
+	 * @param other the collector to be merged, it is not modified
+	 */
+	public void merge(StatsCollector other) {
+		if (other._count == 0) {
+			return;
+		}
+		if (this._count == 0) {
+			this._count = other._count;
+			this._mean = other._mean;
+			this._m2 = other._m2;
+			this._min = other._min;
+			this._max = other._max;
+			return;
+		}
+		long count = this._count + other._count;
+		double delta = other._mean - this._mean;
+		this._mean += delta * other._count / count;
+		this._m2 += other._m2 + delta * delta * ((double) this._count * other._count / count);
+		this._count = count;
+		this._min = Math.min(this._min, other._min);
+		this._max = Math.max(this._max, other._max);
+	}
+
+	/**
+	 * Combine a summary given by its count, sum and sum of squares, e.g. the partial sums
+	 * reduced on an OpenCL device. The minimum and maximum are not known and left unchanged.
+	 * @param count number of data in the summary
+	 * @param sum sum of the data
+	 * @param sumSquare sum of the squared data
+	 */
+	public void merge(long count, double sum, double sumSquare) {
+		if (count == 0) {
+			return;
+		}
+		StatsCollector other = new StatsCollector();
+		other._count = count;
+		other._mean = sum / count;
+		other._m2 = Math.max(sumSquare - sum * other._mean, 0.0);
+		other._min = this._min;
+		other._max = this._max;
+		merge(other);
+	}
+
+	// Clear all the statistics
+	public void reset() {
+		this._count = 0;
+		this._mean = 0.0;
+		this._m2 = 0.0;
+		this._min = Double.POSITIVE_INFINITY;
+		this._max = Double.NEGATIVE_INFINITY;
+	}
+
+	// Getters.
+	// Sample variance, zero until two data are available
+	public double getVariance() {
+		if (this._count < 2) {
+			return 0.0;
+		}
+		return this._m2 / (this._count - 1);
+	}
+
+	public double getStd() {
+		return Math.sqrt(getVariance());
+	}
+
+    // Get means
+	public double getMean() {
+		return this._mean;
+	}
+
+	// get count
+	public long getCount() {
+		return this._count;
+	}
+
+	public double getMin() {
+		return this._min;
+	}
+
+	public double getMax() {
+		return this._max;
+	}
+
+}
+
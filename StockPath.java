@@ -1,9 +1,20 @@
-package MonteCarlo;
-
-import java.util.List;
-import java.util.ArrayList;
-
-public interface StockPath {
-	
-	public ArrayList<pairPrice<Integer, Double>> getPrices();
-}
+package MonteCarlo;
+
+import java.util.List;
+import java.util.ArrayList;
+
+public interface StockPath {
+	
+	public ArrayList<pairPrice<Integer, Double>> getPrices();
+	
+	// Primitive view of the next path, the returned object may be reused by the next call;
+	// this adapter copies getPrices(), implementations override it to fill the array directly
+	public default PricePath getPricePath() {
+		ArrayList<pairPrice<Integer, Double>> prices = getPrices();
+		PricePath path = new PricePath(prices.size() - 1);
+		for (int i_1 = 0; i_1 < prices.size(); ++ i_1) {
+			path.setPrice(i_1, prices.get(i_1).getPrice());
+		}
+		return path;
+	}
+}
@@ -1,81 +1,152 @@
-package MonteCarlo;
-
-import java.awt.Window.Type;
-/**
- * @author xiaog
- *
- */
-/*Import necessary library*/
-import java.util.ArrayList;
-import java.util.List;
-
-
-public class StockPathExponentialBrownian implements StockPath {
-	
-	private double _interestRate = 0.0001; // Daily interest rate
-	private double _volatility = 0.01;  // Daily volatility
-	private double _initialPrice;   // The start price of the underlying
-	private RandomVectorGenerator _initialRandom;
-	private RandomVectorGenerator _antithetic;
-	private ArrayList<pairPrice<Integer, Double>> _path;
-	
-	// Constructors
-	public StockPathExponentialBrownian() {}
-	
-	// Basic constructor receives option and the random number sequence
-	public StockPathExponentialBrownian(Option<?, ?> option, RandomVectorGenerator source)
-	{
-		this._initialRandom = source;
-		this._antithetic = new AntiTheticRandomVectorGenerator(this._initialRandom);
-		this._interestRate = option.getInterestRate();
-		this._volatility = option.getVolatility();
-		this._initialPrice = option.getStartPrice();
-	}
-	
-	// Set the attribute of the option
-	public void setAttribute(Option<?, ?> option) {
-		this._interestRate = option.getInterestRate();
-		this._volatility = option.getVolatility();
-		this._initialPrice = option.getStartPrice();
-	}
-	
-	// Set the path of the source
-	public void setPath(RandomVectorGenerator source) {
-		this._initialRandom = source;
-		this._antithetic = new AntiTheticRandomVectorGenerator(this._initialRandom);
-	}
-
-	// generate sample number from a exponential brownian motion
-	private double generateExpentialBrownian(double former, double normalNumber) {
-		double current = former * Math.exp(this._interestRate - this._volatility * this._volatility / 2.0 + this._volatility * normalNumber);
-		return current;
-	}
-
-	@Override
-	public ArrayList<pairPrice<Integer, Double>> getPrices() {
-		
-		// generate random normal number sequence
-		double[] antiRandomVec = this._antithetic.getVector();
-		// generate price list
-		ArrayList<pairPrice<Integer, Double>> pricelist = new ArrayList<pairPrice<Integer, Double>>();
-		
-		// Input the initial elements
-		pricelist.add(new pairPrice<Integer,Double>(0, this._initialPrice));
-		
-		for (int i_1 = 1; i_1 <= antiRandomVec.length; ++ i_1) {
-			double sample = generateExpentialBrownian(pricelist.get(i_1 - 1).getPrice(), antiRandomVec[i_1 - 1]);
-			pairPrice<Integer, Double> pair = new pairPrice<Integer, Double>(i_1, sample);
-			pricelist.add(pair);
-		}
-		_path = pricelist;
-		return pricelist;
-	}
-	
-	public ArrayList<pairPrice<Integer, Double>> getInternalResult(){
-		if (!_path.isEmpty()) {
-			return _path;
-		}
-		return null; 
-	}
-
-}
+package MonteCarlo;
+
+import java.awt.Window.Type;
+/**
+ * @author xiaog
+ *
+ */
+/*Import necessary library*/
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class StockPathExponentialBrownian implements StockPath {
+	
+	private double _interestRate = 0.0001; // Daily interest rate
+	private double _volatility = 0.01;  // Daily volatility
+	private double _initialPrice;   // The start price of the underlying
+	private RandomVectorGenerator _initialRandom;
+	private RandomVectorGenerator _antithetic;
+	private ArrayList<pairPrice<Integer, Double>> _path;
+	private PricePath _pricePath = new PricePath(); // reused by every call of getPricePath
+	
+	// Constructors
+	public StockPathExponentialBrownian() {}
+	
+	// Basic constructor receives option and the random number sequence
+	public StockPathExponentialBrownian(Option<?, ?> option, RandomVectorGenerator source)
+	{
+		this._initialRandom = source;
+		this._antithetic = new AntiTheticRandomVectorGenerator(this._initialRandom);
+		this._interestRate = option.getInterestRate();
+		this._volatility = option.getVolatility();
+		this._initialPrice = option.getStartPrice();
+	}
+	
+	// Set the attribute of the option
+	public void setAttribute(Option<?, ?> option) {
+		this._interestRate = option.getInterestRate();
+		this._volatility = option.getVolatility();
+		this._initialPrice = option.getStartPrice();
+	}
+	
+	// Set the path of the source
+	public void setPath(RandomVectorGenerator source) {
+		this._initialRandom = source;
+		this._antithetic = new AntiTheticRandomVectorGenerator(this._initialRandom);
+	}
+
+	/**
+	 * Fill the given path from a vector of standard normal increments
+	 * @param normalVec one normal sample per time step
+	 * @param path the primitive path to be overwritten
+	 * @return the filled path
+	 */
+	public PricePath fillPricePath(double[] normalVec, PricePath path) {
+		path.setLength(normalVec.length);
+		double[] prices = path.getPriceArray();
+		double drift = this._interestRate - this._volatility * this._volatility / 2.0;
+		
+		// Input the initial elements
+		prices[0] = this._initialPrice;
+		for (int i_1 = 1; i_1 <= normalVec.length; ++ i_1) {
+			prices[i_1] = prices[i_1 - 1] * Math.exp(drift + this._volatility * normalVec[i_1 - 1]);
+		}
+		return path;
+	}
+
+	/**
+	 * Fill the given path on a grid of steps of equal length, e.g. a coarse grid of a multilevel simulation
+	 * @param normalVec one normal sample per time step, only the first steps are read
+	 * @param steps number of time steps of the path
+	 * @param stepLength length of a time step in days
+	 * @param path the primitive path to be overwritten
+	 * @return the filled path
+	 */
+	public PricePath fillPricePath(double[] normalVec, int steps, double stepLength, PricePath path) {
+		path.setLength(steps);
+		double[] prices = path.getPriceArray();
+		double drift = (this._interestRate - this._volatility * this._volatility / 2.0) * stepLength;
+		double volatility = this._volatility * Math.sqrt(stepLength);
+
+		prices[0] = this._initialPrice;
+		for (int i_1 = 1; i_1 <= steps; ++ i_1) {
+			prices[i_1] = prices[i_1 - 1] * Math.exp(drift + volatility * normalVec[i_1 - 1]);
+		}
+		return path;
+	}
+
+	/**
+	 * Fill every path of the block with the next vectors of the generator
+	 * @param block the block to be overwritten, its path count is kept
+	 * @return the filled block
+	 */
+	public PathBlock fillPathBlock(PathBlock block) {
+		int paths = block.getPathCount();
+		double drift = this._interestRate - this._volatility * this._volatility / 2.0;
+		for (int p = 0; p < paths; ++ p) {
+			double[] antiRandomVec = this._antithetic.getVector();
+			if (p == 0) {
+				block.setSize(paths, antiRandomVec.length);
+			}
+			double[] prices = block.getPriceArray();
+			int index = p;
+			prices[index] = this._initialPrice;
+			for (int i_1 = 0; i_1 < antiRandomVec.length; ++ i_1) {
+				prices[index + paths] = prices[index] * Math.exp(drift + this._volatility * antiRandomVec[i_1]);
+				index += paths;
+			}
+		}
+		return block;
+	}
+	
+	/**
+	 * Generate the next path and push every price into the accumulator without storing the path
+	 * @param statistics the accumulator to be reset and filled
+	 * @return the filled accumulator
+	 */
+	public PathStatistics generatePathStatistics(PathStatistics statistics) {
+		double[] antiRandomVec = this._antithetic.getVector();
+		double drift = this._interestRate - this._volatility * this._volatility / 2.0;
+		double price = this._initialPrice;
+		statistics.reset(price);
+		for (int i_1 = 0; i_1 < antiRandomVec.length; ++ i_1) {
+			price *= Math.exp(drift + this._volatility * antiRandomVec[i_1]);
+			statistics.add(price);
+		}
+		return statistics;
+	}
+	
+	@Override
+	public PricePath getPricePath() {
+		// generate random normal number sequence
+		double[] antiRandomVec = this._antithetic.getVector();
+		return fillPricePath(antiRandomVec, this._pricePath);
+	}
+
+	@Override
+	public ArrayList<pairPrice<Integer, Double>> getPrices() {
+		// generate price list from the primitive path
+		ArrayList<pairPrice<Integer, Double>> pricelist = getPricePath().toPairList();
+		_path = pricelist;
+		return pricelist;
+	}
+	
+	public ArrayList<pairPrice<Integer, Double>> getInternalResult(){
+		if (!_path.isEmpty()) {
+			return _path;
+		}
+		return null; 
+	}
+
+}
@@ -0,0 +1,49 @@
+package MonteCarlo;
+
+import java.util.Random;
+/**
+ * Normal vectors from xoshiro256** (Blackman and Vigna), a 256-bit state generator with
+ * period 2^256 - 1 that passes BigCrush, through the ziggurat sampler.
+ * @author xiaog
+ *
+ */
+
+public class Xoshiro256RandomVectorGenerator extends ZigguratRandomVectorGenerator {
+
+	private long _s0;
+	private long _s1;
+	private long _s2;
+	private long _s3;
+
+	public Xoshiro256RandomVectorGenerator(int length) {
+		this(length, new Random().nextLong());
+	}
+
+	public Xoshiro256RandomVectorGenerator(int length, long seed) {
+		super(length);
+		setSeed(seed);
+	}
+
+	// The state is four SplitMix64 outputs of the seed, never all zero
+	public void setSeed(long seed) {
+		long golden = 0x9E3779B97F4A7C15L;
+		this._s0 = splitMix64(seed += golden);
+		this._s1 = splitMix64(seed += golden);
+		this._s2 = splitMix64(seed += golden);
+		this._s3 = splitMix64(seed + golden);
+	}
+
+	@Override
+	protected long nextLong() {
+		long result = Long.rotateLeft(this._s1 * 5, 7) * 9;
+		long t = this._s1 << 17;
+		this._s2 ^= this._s0;
+		this._s3 ^= this._s1;
+		this._s1 ^= this._s2;
+		this._s0 ^= this._s3;
+		this._s2 ^= t;
+		this._s3 = Long.rotateLeft(this._s3, 45);
+		return result;
+	}
+
+}
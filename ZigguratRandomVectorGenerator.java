@@ -0,0 +1,125 @@
+package MonteCarlo;
+
+/**
+ * This class turns 64-bit random words into standard normals with the ziggurat method of
+ * Marsaglia and Tsang (256 layers). Each normal takes one word: the low 8 bits pick a layer
+ * and the high 53 bits a signed uniform, and about 99% of the draws are accepted with one
+ * multiplication and one comparison. The rare draws on the edge of a layer are checked
+ * against the density, the ones in the base layer beyond r are drawn from the exact tail.
+ *
+ * The subclasses provide the words; none of them is thread safe, every thread needs its own generator.
+ * @author xiaog
+ *
+ */
+
+public abstract class ZigguratRandomVectorGenerator implements BulkRandomVectorGenerator {
+
+	private static final int LAYERS = 256;
+	private static final double R = 3.6541528853610088; // start of the tail
+	private static final double V = 0.00492867323399; // area of every layer
+	private static final double[] X = new double[LAYERS + 1]; // right edges of the layers, X[0] is the virtual edge of the base
+	private static final double[] F = new double[LAYERS + 1]; // density at the edges
+
+	static {
+		X[0] = V / density(R);
+		X[1] = R;
+		for (int i_1 = 1; i_1 < LAYERS - 1; ++ i_1) {
+			X[i_1 + 1] = Math.sqrt(-2.0 * Math.log(V / X[i_1] + density(X[i_1])));
+		}
+		X[LAYERS] = 0.0;
+		for (int i_1 = 0; i_1 <= LAYERS; ++ i_1) {
+			F[i_1] = density(X[i_1]);
+		}
+	}
+
+	protected int _length;
+	protected double[] _vector;
+
+	protected ZigguratRandomVectorGenerator(int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("length must be positive");
+		}
+		this._length = length;
+		this._vector = new double[length];
+	}
+
+	// The next 64 random bits
+	protected abstract long nextLong();
+
+	public int getLength() {
+		return this._length;
+	}
+
+	public double[] getCurrentVector() {
+		return this._vector;
+	}
+
+	// A uniform in [0, 1) from the high 53 bits
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 *
+	 * @return a standard normal
+	 */
+	public double nextGaussian() {
+		while (true) {
+			long bits = nextLong();
+			int i = (int) bits & (LAYERS - 1);
+			// signed uniform in (-1, 1) from the bits above the layer index
+			double u = 2.0 * ((bits >>> 11) * 0x1.0p-53) - 1.0;
+			double x = u * X[i];
+			if (Math.abs(x) < X[i + 1]) {
+				return x;
+			}
+			if (i == 0) {
+				return tail(u < 0.0);
+			}
+			if (F[i + 1] + (F[i] - F[i + 1]) * nextDouble() < density(x)) {
+				return x;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the next vector of _length standard normals, the array is reused by the next call
+	 */
+	@Override
+	public double[] getVector() {
+		fill(this._vector, 0, this._length);
+		return this._vector;
+	}
+
+	@Override
+	public void fill(double[] out, int off, int len) {
+		for (int i_1 = off; i_1 < off + len; ++ i_1) {
+			out[i_1] = nextGaussian();
+		}
+	}
+
+	// Marsaglia's tail algorithm beyond R
+	private double tail(boolean negative) {
+		double x;
+		double y;
+		do {
+			// 1 - u is in (0, 1], so the logarithms are finite
+			x = -Math.log(1.0 - nextDouble()) / R;
+			y = -Math.log(1.0 - nextDouble());
+		} while (2.0 * y < x * x);
+		return negative ? -(R + x) : R + x;
+	}
+
+	private static double density(double x) {
+		return Math.exp(-x * x / 2.0);
+	}
+
+	// SplitMix64 step, used to spread a seed over the state of the generators
+	static long splitMix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,33 @@
+package MonteCarlo;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+/**
+ * Runs the benchmarks with the GC profiler, which adds the allocation rate and the bytes
+ * allocated per path (gc.alloc.rate.norm) to every score.
+ * @author xiaog
+ *
+ */
+
+public class BenchmarkMain {
+
+	/**
+	 *
+	 * @param args regular expressions of the benchmarks to run, all of them when empty
+	 */
+	public static void main(String[] args) throws RunnerException {
+		OptionsBuilder builder = new OptionsBuilder();
+		if (args.length == 0) {
+			builder.include("MonteCarlo\\..*Benchmark");
+		}
+		for (String pattern : args) {
+			builder.include(pattern);
+		}
+		Options options = builder.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+}
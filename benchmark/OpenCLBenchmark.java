@@ -0,0 +1,105 @@
+package MonteCarlo;
+
+import static org.jocl.CL.CL_DEVICE_TYPE_ALL;
+import static org.jocl.CL.CL_DEVICE_TYPE_CPU;
+import static org.jocl.CL.CL_DEVICE_TYPE_GPU;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Benchmarks of the OpenCL pricing, 2^20 paths per invocation, so the scores are in paths per
+ * second and ns per path. The device type defaults to CPU; the setup fails with
+ * IllegalStateException when the machine has no OpenCL device of that type, so exclude this
+ * class (-e OpenCLBenchmark) on such machines.
+ * @author xiaog
+ *
+ */
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenCLBenchmark {
+
+	// a power of two, so it is a whole number of fused batches on every work-group size
+	static final int PATHS = 1 << 20;
+	static final int BATCH = 1 << 16;
+
+	@Param({ "CPU" })
+	public String device;
+
+	@Param({ "21", "63", "252" })
+	public int length;
+
+	@Param({ "European", "Asian" })
+	public String type;
+
+	Option<Integer, Integer> option;
+	CL_Runtime runtime;
+	CL_FusedPricing fused;
+	CL_BatchPipeline pipeline;
+	float strike;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.option = new Option<Integer, Integer>("IBM", this.type, 0.0001, 152.35, 0.01, 165);
+		this.strike = (float) this.option.getStrikePrice();
+		if ("GPU".equals(this.device)) {
+			this.runtime = CL_Runtime.getRuntime(CL_DEVICE_TYPE_GPU);
+		} else if ("CPU".equals(this.device)) {
+			this.runtime = CL_Runtime.getRuntime(CL_DEVICE_TYPE_CPU);
+		} else {
+			this.runtime = CL_Runtime.getRuntime(CL_DEVICE_TYPE_ALL);
+		}
+		this.fused = new CL_FusedPricing(this.option, this.length, 42L, this.runtime);
+		// the pipeline only simulates terminal prices
+		this.pipeline = new CL_BatchPipeline(this.option, this.length, 42L, BATCH, 2, this.runtime);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.fused.release();
+		this.pipeline.release();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PATHS)
+	public double fusedPricing() {
+		StatsCollector collector = new StatsCollector();
+		for (long done = 0; done < PATHS; done += this.fused.getBatchPaths()) {
+			collector.merge(this.fused.nextBatch());
+		}
+		return collector.getMean();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PATHS)
+	public double pipelinedTerminalPrices() {
+		StatsCollector collector = new StatsCollector();
+		for (int done = 0; done < PATHS; done += BATCH) {
+			FloatBuffer prices = this.pipeline.next();
+			while (prices.hasRemaining()) {
+				collector.update(Math.max(prices.get() - this.strike, 0.0f));
+			}
+		}
+		return collector.getMean();
+	}
+
+}
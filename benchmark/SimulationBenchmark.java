@@ -0,0 +1,59 @@
+package MonteCarlo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * End to end benchmark of Simulation with a fixed number of paths per invocation, so the
+ * scores are in paths per second and ns per path whatever the stopping rule would do.
+ * @author xiaog
+ *
+ */
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+	static final int PATHS = 16384;
+
+	@Param({ "21", "63", "252" })
+	public int length;
+
+	@Param({ "European", "Asian" })
+	public String type;
+
+	@Param({ "false", "true" })
+	public boolean streaming;
+
+	Simulation simulation;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Option<Integer, Integer> option = new Option<Integer, Integer>("IBM", this.type, 0.0001, 152.35, 0.01, 165);
+		this.simulation = new Simulation(option, this.length, 0.96, 0.05);
+		this.simulation.setStreaming(this.streaming);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PATHS)
+	public double simulatePaths() {
+		return this.simulation.simulatePaths(PATHS);
+	}
+
+}
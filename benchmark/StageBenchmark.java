@@ -0,0 +1,162 @@
+package MonteCarlo;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Benchmarks of the stages of the pricing loop, one path per operation: the throughput is in
+ * paths per second and the average time in ns per path.
+ * @author xiaog
+ *
+ */
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+	// The normals and the path of one length
+	@State(Scope.Thread)
+	public static class PathState {
+
+		@Param({ "21", "63", "252" })
+		public int length;
+
+		NormalRandomVectorGenerator normal;
+		Xoshiro256RandomVectorGenerator xoshiro;
+		Pcg32RandomVectorGenerator pcg;
+		SplittableRandomVectorGenerator splittable;
+		double[] block;
+		AntiTheticRandomVectorGenerator antithetic;
+		StockPathExponentialBrownian path;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Option<Integer, Integer> option = new Option<Integer, Integer>("IBM", "European", 0.0001, 152.35, 0.01, 165);
+			this.normal = new NormalRandomVectorGenerator(this.length, 42L);
+			this.xoshiro = new Xoshiro256RandomVectorGenerator(this.length, 42L);
+			this.pcg = new Pcg32RandomVectorGenerator(this.length, 42L);
+			this.splittable = new SplittableRandomVectorGenerator(this.length, 42L);
+			this.block = new double[this.length * 256];
+			this.antithetic = new AntiTheticRandomVectorGenerator(new NormalRandomVectorGenerator(this.length, 42L));
+			this.path = new StockPathExponentialBrownian(option, new NormalRandomVectorGenerator(this.length, 42L));
+		}
+	}
+
+	// A fixed path priced by a call of each type
+	@State(Scope.Thread)
+	public static class PayoutState {
+
+		@Param({ "21", "63", "252" })
+		public int length;
+
+		@Param({ "European", "Asian" })
+		public String type;
+
+		CallPayOut payout;
+		StockPath stockPath;
+		PricePath pricePath;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Option<Integer, Integer> option = new Option<Integer, Integer>("IBM", this.type, 0.0001, 152.35, 0.01, 165);
+			StockPathExponentialBrownian path = new StockPathExponentialBrownian(option, new NormalRandomVectorGenerator(this.length, 42L));
+			this.payout = new CallPayOut(option.getStrikePrice(), this.type);
+			this.stockPath = path;
+			this.pricePath = path.getPricePath();
+		}
+	}
+
+	// The collector and a fixed set of samples to feed it
+	@State(Scope.Thread)
+	public static class CollectorState {
+
+		StatsCollector collector;
+		double[] samples;
+		int index;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			this.collector = new StatsCollector();
+			this.samples = new NormalRandomVectorGenerator(1024, 42L).getVector().clone();
+		}
+	}
+
+	@Benchmark
+	public double[] normalGetVector(PathState state) {
+		return state.normal.getVector();
+	}
+
+	@Benchmark
+	public double[] xoshiroGetVector(PathState state) {
+		return state.xoshiro.getVector();
+	}
+
+	@Benchmark
+	public double[] pcgGetVector(PathState state) {
+		return state.pcg.getVector();
+	}
+
+	@Benchmark
+	public double[] splittableGetVector(PathState state) {
+		return state.splittable.getVector();
+	}
+
+	// normals of 256 paths in one call
+	@Benchmark
+	@OperationsPerInvocation(256)
+	public double[] xoshiroFill(PathState state) {
+		state.xoshiro.fill(state.block, 0, state.block.length);
+		return state.block;
+	}
+
+	@Benchmark
+	public double[] antiTheticGetVector(PathState state) {
+		return state.antithetic.getVector();
+	}
+
+	@Benchmark
+	public ArrayList<pairPrice<Integer, Double>> stockPathGetPrices(PathState state) {
+		return state.path.getPrices();
+	}
+
+	@Benchmark
+	public PricePath stockPathGetPricePath(PathState state) {
+		return state.path.getPricePath();
+	}
+
+	// End to end: getPayout(StockPath) generates a new path before the payout, see callPayoutPricePath for the payout alone
+	@Benchmark
+	public double endToEndStockPathPayout(PayoutState state) {
+		return state.payout.getPayout(state.stockPath);
+	}
+
+	// The payout stage alone, on a path generated once in the set up
+	@Benchmark
+	public double callPayoutPricePath(PayoutState state) {
+		return state.payout.getPayout(state.pricePath);
+	}
+
+	@Benchmark
+	public double statsCollectorUpdate(CollectorState state) {
+		state.collector.update(state.samples[state.index]);
+		state.index = (state.index + 1) & 1023;
+		return state.collector.getMean();
+	}
+
+}